@@ -0,0 +1,88 @@
+package com.reactivespring.search;
+
+import com.reactivespring.domain.MovieInfo;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Run with {@code ./gradlew jmh}.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class MovieSearchIndexBenchmark {
+
+    private static final String[] WORDS = {"dark", "knight", "rises", "mission", "impossible", "harry", "potter",
+            "batman", "begins", "return", "empire", "strikes", "back", "lord", "rings", "fellowship", "night",
+            "city", "lost", "world", "star", "wars", "matrix", "reloaded", "revolutions", "inception", "memento"};
+
+    private static final String[] ACTORS = {"Christian Bale", "Tom Cruise", "Daniel Radcliffe", "Keanu Reeves",
+            "Leonardo DiCaprio", "Harrison Ford", "Carrie Fisher", "Elijah Wood", "Ian McKellen", "Michael Caine"};
+
+    @Param({"10000", "100000"})
+    int movies;
+
+    List<MovieInfo> catalogue;
+
+    MovieSearchIndex index;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        var random = new Random(42);
+        catalogue = new ArrayList<>(movies);
+        for (int i = 0; i < movies; i++) {
+            catalogue.add(new MovieInfo(String.valueOf(i), words(random, 3) + " " + i, words(random, 12),
+                    List.of(ACTORS[random.nextInt(ACTORS.length)], ACTORS[random.nextInt(ACTORS.length)]),
+                    LocalDate.of(1980 + random.nextInt(45), 1, 1), 1980 + random.nextInt(45)));
+        }
+        index = build();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public MovieSearchIndex buildIndex() {
+        return build();
+    }
+
+    @Benchmark
+    public List<SearchHit> searchTwoWords() {
+        return index.search("dark knight", 10);
+    }
+
+    @Benchmark
+    public List<SearchHit> searchPrefix() {
+        return index.search("christian ba", 10);
+    }
+
+    @Benchmark
+    public List<String> suggest() {
+        return index.suggest("harr", 10);
+    }
+
+    private MovieSearchIndex build() {
+        var built = new MovieSearchIndex();
+        catalogue.forEach(built::index);
+        return built;
+    }
+
+    private static String words(Random random, int count) {
+        var words = new StringBuilder();
+        for (int i = 0; i < count; i++) {
+            words.append(i == 0 ? "" : " ").append(WORDS[random.nextInt(WORDS.length)]);
+        }
+        return words.toString();
+    }
+}
@@ -0,0 +1,106 @@
+package com.reactivespring.cache;
+
+import com.github.benmanes.caffeine.cache.AsyncCache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.reactivespring.domain.MovieInfo;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Read cache in front of the MovieInfo lookups by id, year and name. Concurrent misses for one key share a
+ * single load; an unknown id is not cached. Writers invalidate exactly the entries a document appears in.
+ */
+@Component
+public class MovieInfoCache {
+
+    private AsyncCache<String, MovieInfo> byId;
+
+    private AsyncCache<String, List<MovieInfo>> byQuery;
+
+    private boolean enabled;
+
+    public MovieInfoCache(MeterRegistry meterRegistry,
+                          @Value("${movieInfo.cache.enabled:true}") boolean enabled,
+                          @Value("${movieInfo.cache.maximumSize:10000}") long maximumSize,
+                          @Value("${movieInfo.cache.ttl:10m}") Duration ttl) {
+        this.enabled = enabled;
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        // query results hold many documents each, so fewer of them are kept
+        this.byQuery = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, maximumSize / 10))
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .buildAsync();
+        CaffeineCacheMetrics.monitor(meterRegistry, byId, "movieInfoCache", Tags.of("lookup", "id"));
+        CaffeineCacheMetrics.monitor(meterRegistry, byQuery, "movieInfoCache", Tags.of("lookup", "query"));
+    }
+
+    public Mono<MovieInfo> getById(String id, Supplier<Mono<MovieInfo>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        return Mono.fromFuture(() -> byId.get(id, (key, executor) -> loader.get().toFuture()));
+    }
+
+    public Flux<MovieInfo> getByYear(Integer year, Supplier<Flux<MovieInfo>> loader) {
+        return getByQuery(yearKey(year), loader);
+    }
+
+    public Flux<MovieInfo> getByName(String name, Supplier<Flux<MovieInfo>> loader) {
+        return getByQuery(nameKey(name), loader);
+    }
+
+    public Flux<MovieInfo> getByYearAndName(Integer year, String name, Supplier<Flux<MovieInfo>> loader) {
+        return getByQuery(yearAndNameKey(year, name), loader);
+    }
+
+    /**
+     * Drops every entry the given version of a document can appear in.
+     */
+    public void invalidate(MovieInfo movieInfo) {
+        if (movieInfo.getMovieId() != null) {
+            byId.synchronous().invalidate(movieInfo.getMovieId());
+        }
+        byQuery.synchronous().invalidateAll(List.of(
+                yearKey(movieInfo.getYear()),
+                nameKey(movieInfo.getName()),
+                yearAndNameKey(movieInfo.getYear(), movieInfo.getName())));
+    }
+
+    public void invalidateId(String id) {
+        byId.synchronous().invalidate(id);
+    }
+
+    private Flux<MovieInfo> getByQuery(String key, Supplier<Flux<MovieInfo>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        return Mono.fromFuture(() -> byQuery.get(key, (k, executor) -> loader.get().collectList().toFuture()))
+                .flatMapIterable(movieInfos -> movieInfos);
+    }
+
+    private String yearKey(Integer year) {
+        return "year:" + year;
+    }
+
+    private String nameKey(String name) {
+        return "name:" + name;
+    }
+
+    private String yearAndNameKey(Integer year, String name) {
+        return "year+name:" + year + ":" + name;
+    }
+}
@@ -0,0 +1,54 @@
+package com.reactivespring.controller;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.exception.MovieInfoPreconditionFailedException;
+import com.reactivespring.service.FieldSelection;
+import org.springframework.util.DigestUtils;
+
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+/**
+ * ETags derived from document versions, so they are computed without serializing the body.
+ */
+final class ETags {
+
+    private ETags() {
+    }
+
+    static String of(MovieInfo movieInfo, FieldSelection fields) {
+        var version = movieInfo.getVersion() != null ? movieInfo.getVersion() : 0L;
+        return fields.isAll() ? "\"" + version + "\"" : "\"" + version + "-" + hash(fields.tag()) + "\"";
+    }
+
+    // a list changes when a document is added, removed or rewritten, its ids and versions capture all three
+    static String of(List<MovieInfo> movieInfos, FieldSelection fields) {
+        var key = new StringBuilder(fields.tag());
+        movieInfos.forEach(movieInfo -> key.append(';').append(movieInfo.getMovieId()).append(':').append(movieInfo.getVersion()));
+        return "W/\"" + hash(key.toString()) + "\"";
+    }
+
+    /**
+     * The document version an If-Match header asks for, null for {@code *}.
+     */
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        var value = ifMatch.trim();
+        if (value.startsWith("W/")) {
+            throw new MovieInfoPreconditionFailedException("If-Match requires a strong ETag : " + ifMatch);
+        }
+        value = value.replace("\"", "");
+        var dash = value.indexOf('-');
+        try {
+            return Long.parseLong(dash >= 0 ? value.substring(0, dash) : value);
+        } catch (NumberFormatException ex) {
+            throw new MovieInfoPreconditionFailedException("Unrecognized ETag : " + ifMatch);
+        }
+    }
+
+    private static String hash(String value) {
+        return DigestUtils.md5DigestAsHex(value.getBytes(StandardCharsets.UTF_8));
+    }
+}
@@ -1,5 +1,6 @@
 package com.reactivespring.controller;
 
+import com.reactivespring.instrumentation.ReactiveInstrumentation;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.RestController;
@@ -11,18 +12,24 @@ import java.time.Duration;
 @RestController
 public class FluxAndMonoController {
 
+    private ReactiveInstrumentation instrumentation;
+
+    public FluxAndMonoController(ReactiveInstrumentation instrumentation) {
+        this.instrumentation = instrumentation;
+    }
+
     @GetMapping("/flux")
     public Flux<Integer> flux(){
-        return Flux.just(1, 2, 3, 4, 5).log();
+        return Flux.just(1, 2, 3, 4, 5).transform(instrumentation.flux("flux"));
     }
 
     @GetMapping("/mono")
     public Mono<String> helloWorld() {
-        return Mono.just("Hello World").log();
+        return Mono.just("Hello World").transform(instrumentation.mono("mono"));
     }
 
     @GetMapping(value = "/stream",produces = MediaType.TEXT_EVENT_STREAM_VALUE)
     public Flux<Long> stream() {
-        return Flux.interval(Duration.ofMillis(500)).log();
+        return Flux.interval(Duration.ofMillis(500)).transform(instrumentation.flux("stream"));
     }
 }
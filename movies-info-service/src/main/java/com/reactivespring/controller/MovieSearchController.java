@@ -0,0 +1,82 @@
+package com.reactivespring.controller;
+
+import com.reactivespring.instrumentation.ReactiveInstrumentation;
+import com.reactivespring.search.FacetQuery;
+import com.reactivespring.search.FacetResult;
+import com.reactivespring.search.MovieFacetIndex;
+import com.reactivespring.search.MovieSearchIndex;
+import com.reactivespring.search.SearchHit;
+import com.reactivespring.service.FieldSelection;
+import com.reactivespring.service.MovieService;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/v1/movieinfos")
+public class MovieSearchController {
+
+    private MovieSearchIndex movieSearchIndex;
+
+    private MovieFacetIndex movieFacetIndex;
+
+    private MovieService movieService;
+
+    private ReactiveInstrumentation instrumentation;
+
+    public MovieSearchController(MovieSearchIndex movieSearchIndex, MovieFacetIndex movieFacetIndex,
+                                 MovieService movieService, ReactiveInstrumentation instrumentation) {
+        this.movieSearchIndex = movieSearchIndex;
+        this.movieFacetIndex = movieFacetIndex;
+        this.movieService = movieService;
+        this.instrumentation = instrumentation;
+    }
+
+    @GetMapping("/search")
+    public Flux<SearchHit> search(@RequestParam("q") String query,
+                                  @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        return Flux.defer(() -> Flux.fromIterable(movieSearchIndex.search(query, Math.min(limit, 100))))
+                .transform(instrumentation.flux("movieinfos.search"));
+    }
+
+    @GetMapping("/suggest")
+    public Mono<List<String>> suggest(@RequestParam("prefix") String prefix,
+                                      @RequestParam(value = "limit", defaultValue = "10") int limit) {
+        // a Flux<String> would be written as raw text, a list is written as a JSON array
+        return Mono.fromSupplier(() -> movieSearchIndex.suggest(prefix, Math.min(limit, 100)))
+                .transform(instrumentation.mono("movieinfos.suggest"));
+    }
+
+    /**
+     * Movies released between {@code yearFrom} and {@code yearTo} (both inclusive, either optional) with all, or with
+     * {@code castMatch=any} any, of the given cast members, plus year and cast counts over every match.
+     * Filtering and counting run on the in-memory index, only the requested page is read from Mongo.
+     */
+    @GetMapping("/facets")
+    public Mono<FacetResult> facets(@RequestParam(value = "yearFrom", required = false) Integer yearFrom,
+                                    @RequestParam(value = "yearTo", required = false) Integer yearTo,
+                                    @RequestParam(value = "cast", required = false) List<String> cast,
+                                    @RequestParam(value = "castMatch", defaultValue = "all") String castMatch,
+                                    @RequestParam(value = "offset", defaultValue = "0") int offset,
+                                    @RequestParam(value = "limit", defaultValue = "20") int limit,
+                                    @RequestParam(value = "facetLimit", defaultValue = "10") int facetLimit,
+                                    @RequestParam(value = "fields", required = false) String fields) {
+        var fieldSelection = FieldSelection.parse(fields);
+        var query = FacetQuery.builder()
+                .yearFrom(yearFrom)
+                .yearTo(yearTo)
+                .cast(cast != null ? cast : List.of())
+                .castMatch("any".equalsIgnoreCase(castMatch) ? FacetQuery.Match.ANY : FacetQuery.Match.ALL)
+                .build();
+        return Mono.fromSupplier(() -> movieFacetIndex.select(query, Math.max(offset, 0), Math.min(limit, 100), Math.min(facetLimit, 100)))
+                .flatMap(selection -> movieService.getMoviesByIds(selection.getMovieIds(), fieldSelection)
+                        .collectList()
+                        .map(movieInfos -> new FacetResult(selection.getTotal(), selection.getYears(), selection.getCast(), movieInfos)))
+                .transform(instrumentation.mono("movieinfos.facets"));
+    }
+}
@@ -1,17 +1,29 @@
 package com.reactivespring.controller;
 
+import com.reactivespring.domain.BulkIngestResult;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.instrumentation.ReactiveInstrumentation;
+import com.reactivespring.paging.KeysetPaging;
+import com.reactivespring.service.FieldSelection;
+import com.reactivespring.service.MovieBulkIngestService;
 import com.reactivespring.service.MovieService;
+import com.reactivespring.stream.MovieInfoEventPublisher;
+import com.reactivespring.stream.MovieInfoReplayBuffer;
+import com.reactivespring.stream.SequencedEvent;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.web.bind.annotation.*;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.Sinks;
 
 import javax.validation.Valid;
+import java.util.List;
 
 @RestController
 @RequestMapping("/v1/movieinfos")
@@ -20,38 +32,102 @@ public class MoviesController {
 
     private MovieService movieService;
 
-    private Sinks.Many<MovieInfo> movieInfoSink = Sinks.many().replay().all();
+    private ReactiveInstrumentation instrumentation;
 
-    public MoviesController(MovieService movieService) {
+    private MovieInfoReplayBuffer movieInfoReplayBuffer;
+
+    private MovieInfoEventPublisher movieInfoEventPublisher;
+
+    private MovieBulkIngestService movieBulkIngestService;
+
+    @Value("${movieInfo.query.defaultPageSize:100}")
+    private int defaultPageSize = 100;
+
+    @Value("${movieInfo.query.maxPageSize:1000}")
+    private int maxPageSize = 1000;
+
+    public MoviesController(MovieService movieService, ReactiveInstrumentation instrumentation,
+                            MovieInfoReplayBuffer movieInfoReplayBuffer, MovieInfoEventPublisher movieInfoEventPublisher,
+                            MovieBulkIngestService movieBulkIngestService) {
         this.movieService = movieService;
+        this.instrumentation = instrumentation;
+        this.movieInfoReplayBuffer = movieInfoReplayBuffer;
+        this.movieInfoEventPublisher = movieInfoEventPublisher;
+        this.movieBulkIngestService = movieBulkIngestService;
     }
 
     @GetMapping
-    public Flux<MovieInfo> getAllMovies(@RequestParam(value = "year", required = false) Integer year,
-                                        @RequestParam(value = "name", required = false) String name) {
+    public Mono<ResponseEntity<List<MovieInfo>>> getAllMovies(@RequestParam(value = "year", required = false) Integer year,
+                                                              @RequestParam(value = "name", required = false) String name,
+                                                              @RequestParam(value = "after", required = false) String after,
+                                                              @RequestParam(value = "limit", required = false) Integer limit,
+                                                              @RequestParam(value = "fields", required = false) String fields) {
         log.info("Year is : {}", year);
+        var fieldSelection = FieldSelection.parse(fields);
+        if (name != null && year != null) {
+            return movieService.getMoviesByYearAndName(year, name, fieldSelection).collectList()
+                    .map(movieInfos -> ResponseEntity.ok().eTag(ETags.of(movieInfos, fieldSelection)).body(movieInfos));
+        }
         if (name != null) {
-            return movieService.getMoviesByName(name);
+            return movieService.getMoviesByName(name, fieldSelection).collectList()
+                    .map(movieInfos -> ResponseEntity.ok().eTag(ETags.of(movieInfos, fieldSelection)).body(movieInfos));
         }
         if (year != null) {
-            return movieService.getMoviesByYear(year);
+            return movieService.getMoviesByYear(year, fieldSelection).collectList()
+                    .map(movieInfos -> ResponseEntity.ok().eTag(ETags.of(movieInfos, fieldSelection)).body(movieInfos));
         }
-        return movieService.getAllMovies().log();
+        var pageSize = Math.max(1, Math.min(limit != null ? limit : defaultPageSize, maxPageSize));
+        return movieService.getMoviesPage(after, pageSize, fieldSelection)
+                .transform(instrumentation.flux("movieinfos.getAll"))
+                .collectList()
+                .map(page -> {
+                    // a matching If-None-Match is answered with 304 before the page is serialized
+                    return ResponseEntity.ok().eTag(ETags.of(page, fieldSelection))
+                            .headers(KeysetPaging.nextPageHeaders("/v1/movieinfos", page, pageSize, MovieInfo::getMovieId))
+                            .body(page);
+                });
+    }
+
+    @GetMapping(value = "/export", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<MovieInfo> exportMovies() {
+        // the whole collection, one document per line, paced by the client's demand
+        return movieService.getAllMovies()
+                .transform(instrumentation.flux("movieinfos.export"));
     }
 
     @GetMapping("/{id}")
-    public Mono<ResponseEntity<MovieInfo>> getMovieById(@PathVariable String id) {
-        return movieService.getMovieById(id)
+    public Mono<ResponseEntity<MovieInfo>> getMovieById(@PathVariable String id,
+                                                        @RequestParam(value = "fields", required = false) String fields) {
+        var fieldSelection = FieldSelection.parse(fields);
+        return movieService.getMovieById(id, fieldSelection)
                 .map(movie -> {
-                    return ResponseEntity.ok().body(movie);
+                    return ResponseEntity.ok().eTag(ETags.of(movie, fieldSelection)).body(movie);
                 })
                 .switchIfEmpty(Mono.just(ResponseEntity.notFound().build()))
-                .log();
+                .transform(instrumentation.mono("movieinfos.getById"));
     }
 
     @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
-    public Flux<MovieInfo> getMovieStream() {
-        return movieInfoSink.asFlux().log();
+    public Flux<MovieInfo> getMovieStream(@RequestParam(value = "since", defaultValue = "0") long since) {
+        // the NDJSON feed carries MovieInfo documents only; deletes are visible on the event-stream variant
+        return movieInfoReplayBuffer.subscribe(since)
+                .map(SequencedEvent::getPayload)
+                .filter(event -> event.getType() != MovieInfoEvent.Type.DELETED)
+                .map(MovieInfoEvent::getMovieInfo)
+                .transform(instrumentation.flux("movieinfos.stream"));
+    }
+
+    @GetMapping(value = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<MovieInfoEvent>> getMovieEventStream(@RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId,
+                                                                     @RequestParam(value = "since", defaultValue = "0") long since) {
+        // a reconnecting EventSource sends back the id of the last event it received
+        var resumeFrom = lastEventId != null ? lastEventId : since;
+        return movieInfoReplayBuffer.subscribe(resumeFrom)
+                .map(event -> ServerSentEvent.builder(event.getPayload())
+                        .id(String.valueOf(event.getSequence()))
+                        .event(event.getPayload().getType().name())
+                        .build())
+                .transform(instrumentation.flux("movieinfos.stream.sse"));
     }
 
     @PostMapping
@@ -61,26 +137,43 @@ public class MoviesController {
                 .addMovie(movie)
                 .doOnNext(savedMovieInfo -> {
                     log.info("Movie added with id: {}", savedMovieInfo.getMovieId());
-                    movieInfoSink.tryEmitNext(savedMovieInfo);
+                    movieInfoEventPublisher.created(savedMovieInfo);
                 })
-                .log();
+                .transform(instrumentation.mono("movieinfos.add"));
+    }
+
+    @PostMapping(value = "/bulk", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    public Mono<BulkIngestResult> bulkAddMovies(@RequestBody Flux<String> lines) {
+        // the body is decoded line by line as it arrives, never as a whole
+        return movieBulkIngestService.ingest(lines)
+                .doOnNext(result -> log.info("Bulk ingest : {} inserted, {} failed", result.getInserted(), result.getFailed()))
+                .transform(instrumentation.mono("movieinfos.bulk"));
     }
 
     @PutMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public Mono<ResponseEntity<MovieInfo>> updateMovieById(@PathVariable String id, @RequestBody MovieInfo newMovie) {
-        return movieService.updateMovie(id, newMovie)
+    public Mono<ResponseEntity<MovieInfo>> updateMovieById(@PathVariable String id, @RequestBody MovieInfo newMovie,
+                                                           @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch) {
+        return movieService.updateMovie(id, newMovie, ETags.expectedVersion(ifMatch))
+                .doOnNext(movieInfoEventPublisher::updated)
                 .map(movie -> {
-                    return ResponseEntity.ok().body(movie);
+                    return ResponseEntity.ok().eTag(ETags.of(movie, FieldSelection.ALL)).body(movie);
                 })
                 .switchIfEmpty(Mono.just((ResponseEntity.notFound().build())))
-                .log();
+                .transform(instrumentation.mono("movieinfos.update"));
     }
 
     @DeleteMapping("/{id}")
     @ResponseStatus(HttpStatus.NO_CONTENT)
-    public Mono<Void> deleteMovieById(@PathVariable String id) {
-        return movieService.deleteMovie(id);
+    public Mono<ResponseEntity<Void>> deleteMovieById(@PathVariable String id) {
+        return movieService.deleteMovie(id)
+                .map(removed -> {
+                    if (!removed) {
+                        return ResponseEntity.notFound().<Void>build();
+                    }
+                    movieInfoEventPublisher.deleted(id);
+                    return ResponseEntity.noContent().<Void>build();
+                });
 
     }
 }
@@ -1,9 +1,14 @@
 package com.reactivespring.domain;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.annotation.JsonProperty;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Version;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
+import org.springframework.data.mongodb.core.index.Indexed;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import javax.validation.constraints.NotBlank;
@@ -15,10 +20,15 @@ import java.util.List;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document
+// fields left out of a projection are null and must not be serialized
+@JsonInclude(JsonInclude.Include.NON_NULL)
+// also serves year-only lookups through its prefix, so year needs no index of its own
+@CompoundIndex(name = "year_name", def = "{'year': 1, 'name': 1}")
 public class MovieInfo {
     @Id
     private String movieId;
     @NotBlank(message = "Movie name must be provided")
+    @Indexed
     private String name;
 
     private String description;
@@ -29,4 +39,13 @@ public class MovieInfo {
 
     @Positive(message = "Year must be a positive number")
     private Integer year;
+
+    // bumped on every write, served as the ETag; clients cannot set it
+    @Version
+    @JsonProperty(access = JsonProperty.Access.READ_ONLY)
+    private Long version;
+
+    public MovieInfo(String movieId, String name, String description, List<String> cast, LocalDate releaseDate, Integer year) {
+        this(movieId, name, description, cast, releaseDate, year, null);
+    }
 }
@@ -0,0 +1,10 @@
+package com.reactivespring.exception;
+
+public class InvalidFieldSelectionException extends RuntimeException {
+    private String message;
+
+    public InvalidFieldSelectionException(String message) {
+        super(message);
+        this.message = message;
+    }
+}
@@ -0,0 +1,10 @@
+package com.reactivespring.exception;
+
+public class MovieInfoPreconditionFailedException extends RuntimeException {
+    private String message;
+
+    public MovieInfoPreconditionFailedException(String message) {
+        super(message);
+        this.message = message;
+    }
+}
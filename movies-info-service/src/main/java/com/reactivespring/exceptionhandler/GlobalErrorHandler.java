@@ -1,7 +1,11 @@
 package com.reactivespring.exceptionhandler;
 
+import com.reactivespring.exception.InvalidFieldSelectionException;
+import com.reactivespring.exception.MovieInfoPreconditionFailedException;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.support.DefaultMessageSourceResolvable;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.dao.OptimisticLockingFailureException;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ControllerAdvice;
@@ -24,4 +28,24 @@ public class GlobalErrorHandler {
         log.error("Error is : {} ", error);
         return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(error);
     }
+
+    @ExceptionHandler(InvalidFieldSelectionException.class)
+    public ResponseEntity<String> handleInvalidFieldSelection(InvalidFieldSelectionException ex){
+        log.error("Exception caught in handleInvalidFieldSelection : {} ", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(ex.getMessage());
+    }
+
+    // the stored document is no longer at the version the client sent in If-Match
+    @ExceptionHandler({MovieInfoPreconditionFailedException.class, OptimisticLockingFailureException.class})
+    public ResponseEntity<String> handlePreconditionFailed(RuntimeException ex){
+        log.error("Exception caught in handlePreconditionFailed : {} ", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(ex.getMessage());
+    }
+
+    // POST only creates: the version of a new MovieInfo is always unset, so a taken movieId fails the insert
+    @ExceptionHandler(DuplicateKeyException.class)
+    public ResponseEntity<String> handleDuplicateKey(DuplicateKeyException ex){
+        log.error("Exception caught in handleDuplicateKey : {} ", ex.getMessage());
+        return ResponseEntity.status(HttpStatus.CONFLICT).body("MovieInfo already exists, use PUT to update it");
+    }
 }
@@ -0,0 +1,41 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.MovieInfo;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+/**
+ * Ensures the year/name compound index and the name index of {@link MovieInfo}, which back the
+ * {@link MovieRepository} year and name lookups. Only this entity is resolved, automatic index creation
+ * stays off for everything else.
+ */
+@Component
+@Slf4j
+public class MovieInfoIndexInitializer {
+
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    private MongoMappingContext mongoMappingContext;
+
+    public MovieInfoIndexInitializer(ReactiveMongoTemplate reactiveMongoTemplate, MongoMappingContext mongoMappingContext) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.mongoMappingContext = mongoMappingContext;
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void ensureIndexes() {
+        var resolver = new MongoPersistentEntityIndexResolver(mongoMappingContext);
+        var indexOps = reactiveMongoTemplate.indexOps(MovieInfo.class);
+        Flux.fromIterable(resolver.resolveIndexFor(MovieInfo.class))
+                .concatMap(indexOps::ensureIndex)
+                .doOnNext(indexName -> log.info("Ensured MovieInfo index : {}", indexName))
+                // blocking on purpose, queries must not run before their indexes exist
+                .blockLast();
+    }
+}
@@ -8,4 +8,5 @@ public interface MovieRepository extends ReactiveMongoRepository<MovieInfo,Strin
 
     Flux<MovieInfo> findByYear(Integer year);
     Flux<MovieInfo> findByName(String name);
+    Flux<MovieInfo> findByYearAndName(Integer year, String name);
 }
@@ -0,0 +1,29 @@
+package com.reactivespring.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@Builder
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetQuery {
+
+    public enum Match {
+        /** the movie has every listed cast member */
+        ALL,
+        /** the movie has at least one listed cast member */
+        ANY
+    }
+
+    private Integer yearFrom;
+    private Integer yearTo;
+    @Builder.Default
+    private List<String> cast = List.of();
+    @Builder.Default
+    private Match castMatch = Match.ALL;
+}
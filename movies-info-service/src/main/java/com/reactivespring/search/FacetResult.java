@@ -0,0 +1,19 @@
+package com.reactivespring.search;
+
+import com.reactivespring.domain.MovieInfo;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+import java.util.Map;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class FacetResult {
+    private long total;
+    private Map<Integer, Long> years;
+    private Map<String, Long> cast;
+    private List<MovieInfo> movieInfos;
+}
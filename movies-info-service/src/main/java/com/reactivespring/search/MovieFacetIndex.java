@@ -0,0 +1,274 @@
+package com.reactivespring.search;
+
+import com.reactivespring.domain.MovieInfo;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import org.roaringbitmap.FastAggregation;
+import org.roaringbitmap.RoaringBitmap;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Secondary index on year and cast member. Every indexed movie gets a dense int ordinal and each year and cast
+ * member maps to a compressed bitmap of ordinals, so filters are bitmap ANDs and ORs and facet counts are
+ * intersection cardinalities, none of which touch Mongo. Only the ids of the requested page leave the index.
+ * <p>
+ * Pages are in ordinal order, so ordinals are handed out in insertion order and never reused: a movie added
+ * while a client pages through the results lands after the pages already served instead of in a slot freed
+ * by a removal. Removed movies leave a hole in the ordinal space until the next rebuild, which assigns dense
+ * ordinals again.
+ */
+@Component
+public class MovieFacetIndex implements MovieIndex {
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private Map<String, Integer> ordinals = new HashMap<>();
+
+    // ordinal -> indexed movie, null for removed movies
+    private List<IndexedMovie> movies = new ArrayList<>();
+
+    private RoaringBitmap all = new RoaringBitmap();
+
+    private TreeMap<Integer, RoaringBitmap> years = new TreeMap<>();
+
+    // normalized cast member -> ordinals, and the spelling to show for it
+    private Map<String, RoaringBitmap> cast = new HashMap<>();
+    private Map<String, String> castNames = new HashMap<>();
+
+    @Override
+    public void index(MovieInfo movieInfo) {
+        var indexed = IndexedMovie.of(movieInfo);
+        lock.writeLock().lock();
+        try {
+            var ordinal = ordinals.get(indexed.movieId);
+            if (ordinal != null) {
+                var current = movies.get(ordinal);
+                if (current.version > indexed.version) {
+                    // an older copy arriving late, e.g. from the startup scan
+                    return;
+                }
+                unindex(ordinal, current);
+            } else {
+                movies.add(null);
+                ordinal = movies.size() - 1;
+                ordinals.put(indexed.movieId, ordinal);
+            }
+            movies.set(ordinal, indexed);
+            all.add(ordinal);
+            if (indexed.year != null) {
+                years.computeIfAbsent(indexed.year, year -> new RoaringBitmap()).add(ordinal);
+            }
+            for (var entry : indexed.cast.entrySet()) {
+                cast.computeIfAbsent(entry.getKey(), member -> new RoaringBitmap()).add(ordinal);
+                castNames.putIfAbsent(entry.getKey(), entry.getValue());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(String movieId) {
+        lock.writeLock().lock();
+        try {
+            var ordinal = ordinals.remove(movieId);
+            if (ordinal != null) {
+                unindex(ordinal, movies.get(ordinal));
+                movies.set(ordinal, null);
+                all.remove(ordinal);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public MovieIndex newEmpty() {
+        return new MovieFacetIndex();
+    }
+
+    @Override
+    public void replaceWith(MovieIndex rebuilt) {
+        var other = (MovieFacetIndex) rebuilt;
+        lock.writeLock().lock();
+        try {
+            ordinals = other.ordinals;
+            movies = other.movies;
+            all = other.all;
+            years = other.years;
+            cast = other.cast;
+            castNames = other.castNames;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Applies the filter and returns the total, the year and cast counts within the matches (at most
+     * {@code facetLimit} cast members, the most frequent first) and the ids of the requested page.
+     */
+    public Selection select(FacetQuery query, int offset, int limit, int facetLimit) {
+        lock.readLock().lock();
+        try {
+            var matches = matches(query);
+            var total = matches.getLongCardinality();
+
+            var yearCounts = new LinkedHashMap<Integer, Long>();
+            years.forEach((year, ordinals) -> {
+                var count = RoaringBitmap.andCardinality(ordinals, matches);
+                if (count > 0) {
+                    yearCounts.put(year, (long) count);
+                }
+            });
+
+            return new Selection(total, yearCounts, castCounts(matches, facetLimit), page(matches, offset, limit));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return ordinals.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private RoaringBitmap matches(FacetQuery query) {
+        RoaringBitmap matches = all;
+        if (query.getYearFrom() != null || query.getYearTo() != null) {
+            var from = query.getYearFrom() != null ? query.getYearFrom() : Integer.MIN_VALUE;
+            var to = query.getYearTo() != null ? query.getYearTo() : Integer.MAX_VALUE;
+            if (from > to) {
+                return new RoaringBitmap();
+            }
+            matches = FastAggregation.or(years.subMap(from, true, to, true).values().iterator());
+        }
+        var members = castKeys(query.getCast());
+        if (!members.isEmpty()) {
+            var bitmaps = new ArrayList<RoaringBitmap>(members.size());
+            for (var member : members) {
+                var ordinals = cast.get(member);
+                if (ordinals != null) {
+                    bitmaps.add(ordinals);
+                } else if (query.getCastMatch() != FacetQuery.Match.ANY) {
+                    return new RoaringBitmap();
+                }
+            }
+            var byCast = query.getCastMatch() == FacetQuery.Match.ANY
+                    ? FastAggregation.or(bitmaps.iterator())
+                    : FastAggregation.and(bitmaps.iterator());
+            matches = RoaringBitmap.and(matches, byCast);
+        }
+        return matches;
+    }
+
+    private Map<String, Long> castCounts(RoaringBitmap matches, int facetLimit) {
+        var counts = new LinkedHashMap<String, Long>();
+        if (facetLimit <= 0 || matches.isEmpty()) {
+            return counts;
+        }
+        // min-heap of the best facetLimit members seen so far
+        var top = new PriorityQueue<Map.Entry<String, Integer>>(Map.Entry.<String, Integer>comparingByValue()
+                .thenComparing(Map.Entry.<String, Integer>comparingByKey().reversed()));
+        cast.forEach((member, ordinals) -> {
+            var count = RoaringBitmap.andCardinality(ordinals, matches);
+            if (count > 0) {
+                top.add(Map.entry(member, count));
+                if (top.size() > facetLimit) {
+                    top.poll();
+                }
+            }
+        });
+        top.stream()
+                .sorted(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder())
+                        .thenComparing(Map.Entry.comparingByKey()))
+                .forEach(entry -> counts.put(castNames.get(entry.getKey()), (long) entry.getValue()));
+        return counts;
+    }
+
+    private List<String> page(RoaringBitmap matches, int offset, int limit) {
+        var movieIds = new ArrayList<String>(Math.max(0, limit));
+        if (limit <= 0 || offset < 0 || offset >= matches.getLongCardinality()) {
+            return movieIds;
+        }
+        var ordinals = matches.getIntIterator();
+        ordinals.advanceIfNeeded(matches.select(offset));
+        while (ordinals.hasNext() && movieIds.size() < limit) {
+            movieIds.add(movies.get(ordinals.next()).movieId);
+        }
+        return movieIds;
+    }
+
+    private void unindex(int ordinal, IndexedMovie indexed) {
+        if (indexed.year != null) {
+            var ordinals = years.get(indexed.year);
+            ordinals.remove(ordinal);
+            if (ordinals.isEmpty()) {
+                years.remove(indexed.year);
+            }
+        }
+        for (var member : indexed.cast.keySet()) {
+            var ordinals = cast.get(member);
+            ordinals.remove(ordinal);
+            if (ordinals.isEmpty()) {
+                cast.remove(member);
+                castNames.remove(member);
+            }
+        }
+    }
+
+    private static Set<String> castKeys(List<String> members) {
+        var keys = new LinkedHashSet<String>();
+        if (members != null) {
+            members.stream()
+                    .filter(member -> member != null && !member.isBlank())
+                    .forEach(member -> keys.add(Tokenizer.normalize(member.trim())));
+        }
+        return keys;
+    }
+
+    @Data
+    @AllArgsConstructor
+    public static class Selection {
+        private long total;
+        private Map<Integer, Long> years;
+        private Map<String, Long> cast;
+        private List<String> movieIds;
+    }
+
+    private static class IndexedMovie {
+        private String movieId;
+        private Integer year;
+        private long version;
+        // normalized cast member -> spelling as given
+        private Map<String, String> cast = new LinkedHashMap<>();
+
+        static IndexedMovie of(MovieInfo movieInfo) {
+            var indexed = new IndexedMovie();
+            indexed.movieId = movieInfo.getMovieId();
+            indexed.year = movieInfo.getYear();
+            indexed.version = movieInfo.getVersion() != null ? movieInfo.getVersion() : 0L;
+            if (movieInfo.getCast() != null) {
+                movieInfo.getCast().stream()
+                        .filter(member -> member != null && !member.isBlank())
+                        .forEach(member -> indexed.cast.putIfAbsent(Tokenizer.normalize(member.trim()), member.trim()));
+            }
+            return indexed;
+        }
+    }
+}
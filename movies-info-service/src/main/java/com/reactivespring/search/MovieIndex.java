@@ -0,0 +1,27 @@
+package com.reactivespring.search;
+
+import com.reactivespring.domain.MovieInfo;
+
+/**
+ * An in-memory secondary index over MovieInfo, kept in sync by {@link MovieIndexUpdater}.
+ */
+public interface MovieIndex {
+
+    /**
+     * Adds the document, or replaces the indexed version of it.
+     */
+    void index(MovieInfo movieInfo);
+
+    void remove(String movieId);
+
+    /**
+     * An empty, unshared index of the same kind. A rebuild fills it while this one keeps serving, then installs
+     * it with {@link #replaceWith}.
+     */
+    MovieIndex newEmpty();
+
+    /**
+     * Takes over the contents of {@code rebuilt}, which comes from {@link #newEmpty()} and is not used afterwards.
+     */
+    void replaceWith(MovieIndex rebuilt);
+}
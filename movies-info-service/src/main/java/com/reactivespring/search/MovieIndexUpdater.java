@@ -0,0 +1,108 @@
+package com.reactivespring.search;
+
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.service.MovieService;
+import com.reactivespring.stream.MovieInfoReplayBuffer;
+import com.reactivespring.stream.SequencedEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Builds every {@link MovieIndex} from the collection at startup and then follows the movie info event
+ * stream, so the indexes see the same writes as /stream subscribers, including writes made through other
+ * instances when the change-stream source is on. Events missed because the replay buffer lapped this
+ * consumer trigger a rebuild. A rebuild scans into fresh indexes and swaps them in once the scan is done,
+ * so searches keep being answered from the old contents meanwhile instead of from a half-filled index.
+ */
+@Component
+@Slf4j
+public class MovieIndexUpdater {
+
+    private List<MovieIndex> indexes;
+
+    private MovieService movieService;
+
+    private MovieInfoReplayBuffer movieInfoReplayBuffer;
+
+    private boolean enabled;
+
+    private Disposable subscription;
+
+    public MovieIndexUpdater(List<MovieIndex> indexes, MovieService movieService, MovieInfoReplayBuffer movieInfoReplayBuffer,
+                             @Value("${movieInfo.search.enabled:true}") boolean enabled) {
+        this.indexes = indexes;
+        this.movieService = movieService;
+        this.movieInfoReplayBuffer = movieInfoReplayBuffer;
+        this.enabled = enabled;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        if (!enabled) {
+            return;
+        }
+        // events from here on are applied after the scan; replaying a write the scan already saw is harmless
+        var lastSequence = new AtomicLong(movieInfoReplayBuffer.latestSequence());
+        subscription = rebuild()
+                .thenMany(Mono.defer(() -> Mono.just(lastSequence.get()))
+                        .flatMapMany(movieInfoReplayBuffer::subscribe))
+                .concatMap(event -> {
+                    var expected = lastSequence.get() + 1;
+                    lastSequence.set(event.getSequence());
+                    if (event.getSequence() != expected) {
+                        log.warn("Movie indexes missed events {} to {}, rebuilding", expected, event.getSequence() - 1);
+                        return rebuild().then(Mono.fromRunnable(() -> apply(event)));
+                    }
+                    return Mono.fromRunnable(() -> apply(event));
+                })
+                .doOnError(ex -> log.error("Movie index updates failed, retrying : {}", ex.getMessage()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    Mono<Void> rebuild() {
+        return Mono.defer(() -> {
+            var rebuilt = indexes.stream()
+                    .map(MovieIndex::newEmpty)
+                    .collect(Collectors.toList());
+            return movieService.getAllMovies()
+                    .doOnNext(movieInfo -> rebuilt.forEach(index -> index.index(movieInfo)))
+                    .count()
+                    .doOnNext(count -> {
+                        for (int i = 0; i < indexes.size(); i++) {
+                            indexes.get(i).replaceWith(rebuilt.get(i));
+                        }
+                        log.info("Movie indexes built from {} documents", count);
+                    })
+                    .then();
+        });
+    }
+
+    private void apply(SequencedEvent<MovieInfoEvent> sequenced) {
+        var event = sequenced.getPayload();
+        if (event.getType() == MovieInfoEvent.Type.DELETED) {
+            indexes.forEach(index -> index.remove(event.getMovieId()));
+        } else {
+            indexes.forEach(index -> index.index(event.getMovieInfo()));
+        }
+    }
+}
@@ -0,0 +1,250 @@
+package com.reactivespring.search;
+
+import com.reactivespring.domain.MovieInfo;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Collectors;
+
+/**
+ * Inverted index over the name, description and cast of every MovieInfo, with a token trie to expand the
+ * word being typed and a phrase trie of movie names and cast members for autocomplete. Everything is held
+ * on heap and answered without touching Mongo; readers share a read lock, writers are serialized.
+ * <p>
+ * Trie counts are document frequencies: every posting adds its token once, so prefix expansion keeps the
+ * tokens that match the most movies, and the prefix itself whenever it is a token.
+ */
+@Component
+public class MovieSearchIndex implements MovieIndex {
+
+    static final int NAME = 1;
+    static final int CAST = 2;
+    static final int DESCRIPTION = 4;
+
+    // prefix expansion of the last query word is capped, a one-letter prefix would otherwise match everything
+    private static final int MAX_PREFIX_EXPANSIONS = 50;
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // token -> movieId -> fields the token occurs in
+    private Map<String, Map<String, Integer>> postings = new HashMap<>();
+
+    private Map<String, IndexedMovie> movies = new HashMap<>();
+
+    // token -> number of movies containing it
+    private PrefixTrie tokens = new PrefixTrie();
+
+    private PrefixTrie phrases = new PrefixTrie();
+
+    @Override
+    public void index(MovieInfo movieInfo) {
+        var indexed = IndexedMovie.of(movieInfo);
+        lock.writeLock().lock();
+        try {
+            var current = movies.get(indexed.movieId);
+            if (current != null && current.version > indexed.version) {
+                // an older copy arriving late, e.g. from the startup scan
+                return;
+            }
+            if (current != null) {
+                unindex(current);
+            }
+            movies.put(indexed.movieId, indexed);
+            indexed.fields.forEach((token, fields) -> {
+                postings.computeIfAbsent(token, t -> new HashMap<>()).put(indexed.movieId, fields);
+                tokens.add(token, token);
+            });
+            indexed.phrases.forEach(phrase -> phrases.add(Tokenizer.normalize(phrase), phrase));
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void remove(String movieId) {
+        lock.writeLock().lock();
+        try {
+            var current = movies.remove(movieId);
+            if (current != null) {
+                unindex(current);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public MovieIndex newEmpty() {
+        return new MovieSearchIndex();
+    }
+
+    @Override
+    public void replaceWith(MovieIndex rebuilt) {
+        var other = (MovieSearchIndex) rebuilt;
+        lock.writeLock().lock();
+        try {
+            postings = other.postings;
+            movies = other.movies;
+            tokens = other.tokens;
+            phrases = other.phrases;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Movies containing every word of the query, the last word matched as a prefix. Matches in the name weigh
+     * more than matches in the cast, which weigh more than matches in the description.
+     */
+    public List<SearchHit> search(String query, int limit) {
+        var words = Tokenizer.tokenize(query);
+        if (words.isEmpty() || limit <= 0) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            Map<String, Integer> scores = null;
+            for (int i = 0; i < words.size(); i++) {
+                var last = i == words.size() - 1;
+                var matches = last ? prefixMatches(words.get(i)) : exactMatches(words.get(i));
+                if (scores == null) {
+                    scores = matches;
+                } else {
+                    var previous = scores;
+                    scores = new HashMap<>();
+                    for (var entry : previous.entrySet()) {
+                        var score = matches.get(entry.getKey());
+                        if (score != null) {
+                            scores.put(entry.getKey(), entry.getValue() + score);
+                        }
+                    }
+                }
+                if (scores.isEmpty()) {
+                    return List.of();
+                }
+            }
+            return scores.entrySet().stream()
+                    .sorted(Map.Entry.<String, Integer>comparingByValue(Comparator.reverseOrder())
+                            .thenComparing(Map.Entry.comparingByKey()))
+                    .limit(limit)
+                    .map(entry -> {
+                        var movie = movies.get(entry.getKey());
+                        return new SearchHit(movie.movieId, movie.name, movie.year, entry.getValue());
+                    })
+                    .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Movie names and cast members starting with {@code prefix}, the most frequent first.
+     */
+    public List<String> suggest(String prefix, int limit) {
+        if (prefix == null || prefix.isBlank()) {
+            return List.of();
+        }
+        lock.readLock().lock();
+        try {
+            return phrases.complete(Tokenizer.normalize(prefix), limit).stream()
+                    .map(completion -> completion.display)
+                    .collect(Collectors.toList());
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return movies.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private Map<String, Integer> exactMatches(String token) {
+        var scores = new HashMap<String, Integer>();
+        postings.getOrDefault(token, Map.of()).forEach((movieId, fields) -> scores.put(movieId, score(fields)));
+        return scores;
+    }
+
+    private Map<String, Integer> prefixMatches(String prefix) {
+        // a finished word is matched even when it is rarer than the expansions that make the cut
+        var scores = exactMatches(prefix);
+        for (var completion : tokens.complete(prefix, MAX_PREFIX_EXPANSIONS)) {
+            postings.getOrDefault(completion.key, Map.of())
+                    .forEach((movieId, fields) -> scores.merge(movieId, score(fields), Math::max));
+        }
+        return scores;
+    }
+
+    private void unindex(IndexedMovie indexed) {
+        indexed.fields.keySet().forEach(token -> {
+            var tokenPostings = postings.get(token);
+            tokenPostings.remove(indexed.movieId);
+            if (tokenPostings.isEmpty()) {
+                postings.remove(token);
+            }
+            tokens.remove(token);
+        });
+        indexed.phrases.forEach(phrase -> phrases.remove(Tokenizer.normalize(phrase)));
+    }
+
+    private static int score(int fields) {
+        var score = 0;
+        if ((fields & NAME) != 0) {
+            score += 3;
+        }
+        if ((fields & CAST) != 0) {
+            score += 2;
+        }
+        if ((fields & DESCRIPTION) != 0) {
+            score += 1;
+        }
+        return score;
+    }
+
+    private static class IndexedMovie {
+        private String movieId;
+        private String name;
+        private Integer year;
+        private long version;
+        private Map<String, Integer> fields = new HashMap<>();
+        private LinkedHashSet<String> phrases = new LinkedHashSet<>();
+
+        static IndexedMovie of(MovieInfo movieInfo) {
+            var indexed = new IndexedMovie();
+            indexed.movieId = movieInfo.getMovieId();
+            indexed.name = movieInfo.getName();
+            indexed.year = movieInfo.getYear();
+            indexed.version = movieInfo.getVersion() != null ? movieInfo.getVersion() : 0L;
+            indexed.add(movieInfo.getName(), NAME);
+            indexed.add(movieInfo.getDescription(), DESCRIPTION);
+            var phrases = new ArrayList<String>();
+            if (movieInfo.getName() != null) {
+                phrases.add(movieInfo.getName());
+            }
+            if (movieInfo.getCast() != null) {
+                movieInfo.getCast().forEach(member -> {
+                    indexed.add(member, CAST);
+                    if (member != null && !member.isBlank()) {
+                        phrases.add(member);
+                    }
+                });
+            }
+            indexed.phrases.addAll(phrases);
+            return indexed;
+        }
+
+        private void add(String text, int field) {
+            Tokenizer.tokenize(text).forEach(token -> fields.merge(token, field, (a, b) -> a | b));
+        }
+    }
+}
@@ -0,0 +1,145 @@
+package com.reactivespring.search;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * Reference-counted set of keys supporting prefix completion. Each node keeps the highest count found below it,
+ * so completion visits the most popular branches first and stops as soon as it has {@code limit} keys that no
+ * unvisited branch can beat. Equal counts are visited shortest key first. Not thread-safe, callers guard it.
+ */
+class PrefixTrie {
+
+    private final Node root = new Node();
+
+    void add(String key, String display) {
+        var path = path(key, true);
+        var terminal = path.get(path.size() - 1);
+        terminal.count++;
+        terminal.display = display;
+        updateBest(path);
+    }
+
+    void remove(String key) {
+        var path = path(key, false);
+        if (path == null) {
+            return;
+        }
+        var terminal = path.get(path.size() - 1);
+        if (terminal.count == 0) {
+            return;
+        }
+        terminal.count--;
+        if (terminal.count == 0) {
+            terminal.display = null;
+        }
+        // drop branches that no longer lead to any key
+        for (int i = path.size() - 1; i > 0; i--) {
+            var node = path.get(i);
+            if (node.count == 0 && node.children.isEmpty()) {
+                path.get(i - 1).children.remove(key.charAt(i - 1));
+            }
+        }
+        updateBest(path);
+    }
+
+    /**
+     * Up to {@code limit} keys starting with {@code prefix}, most frequent first.
+     */
+    List<Completion> complete(String prefix, int limit) {
+        var completions = new ArrayList<Completion>();
+        var start = path(prefix, false);
+        if (start == null || limit <= 0) {
+            return completions;
+        }
+        var frontier = new PriorityQueue<Candidate>(Comparator.<Candidate>comparingInt(candidate -> -candidate.priority)
+                .thenComparingInt(candidate -> candidate.key.length())
+                .thenComparing(candidate -> candidate.key));
+        var from = start.get(start.size() - 1);
+        frontier.add(new Candidate(from, prefix, from.best));
+        while (!frontier.isEmpty() && completions.size() < limit) {
+            var candidate = frontier.poll();
+            if (candidate.terminal) {
+                completions.add(new Completion(candidate.key, candidate.node.display, candidate.node.count));
+                continue;
+            }
+            var node = candidate.node;
+            if (node.count > 0) {
+                frontier.add(new Candidate(node, candidate.key, node.count, true));
+            }
+            node.children.forEach((c, child) -> frontier.add(new Candidate(child, candidate.key + c, child.best)));
+        }
+        return completions;
+    }
+
+    private List<Node> path(String key, boolean create) {
+        var path = new ArrayList<Node>(key.length() + 1);
+        var node = root;
+        path.add(node);
+        for (int i = 0; i < key.length(); i++) {
+            var next = node.children.get(key.charAt(i));
+            if (next == null) {
+                if (!create) {
+                    return null;
+                }
+                next = new Node();
+                node.children.put(key.charAt(i), next);
+            }
+            node = next;
+            path.add(node);
+        }
+        return path;
+    }
+
+    private void updateBest(List<Node> path) {
+        for (int i = path.size() - 1; i >= 0; i--) {
+            var node = path.get(i);
+            var best = node.count;
+            for (var child : node.children.values()) {
+                best = Math.max(best, child.best);
+            }
+            node.best = best;
+        }
+    }
+
+    static class Completion {
+        final String key;
+        final String display;
+        final int count;
+
+        Completion(String key, String display, int count) {
+            this.key = key;
+            this.display = display;
+            this.count = count;
+        }
+    }
+
+    private static class Node {
+        private final Map<Character, Node> children = new HashMap<>(4);
+        private int count;
+        private int best;
+        private String display;
+    }
+
+    private static class Candidate {
+        private final Node node;
+        private final String key;
+        private final int priority;
+        private final boolean terminal;
+
+        Candidate(Node node, String key, int priority) {
+            this(node, key, priority, false);
+        }
+
+        Candidate(Node node, String key, int priority, boolean terminal) {
+            this.node = node;
+            this.key = key;
+            this.priority = priority;
+            this.terminal = terminal;
+        }
+    }
+}
@@ -0,0 +1,15 @@
+package com.reactivespring.search;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SearchHit {
+    private String movieId;
+    private String name;
+    private Integer year;
+    private int score;
+}
@@ -0,0 +1,42 @@
+package com.reactivespring.search;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+/**
+ * Splits text into lower-case, accent-free tokens on anything that is not a letter or a digit.
+ */
+public final class Tokenizer {
+
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    private Tokenizer() {
+    }
+
+    public static String normalize(String text) {
+        var decomposed = Normalizer.normalize(text, Normalizer.Form.NFD);
+        return DIACRITICS.matcher(decomposed).replaceAll("").toLowerCase(Locale.ROOT);
+    }
+
+    public static List<String> tokenize(String text) {
+        var tokens = new ArrayList<String>();
+        if (text == null) {
+            return tokens;
+        }
+        var normalized = normalize(text);
+        var start = -1;
+        for (int i = 0; i <= normalized.length(); i++) {
+            var tokenChar = i < normalized.length() && Character.isLetterOrDigit(normalized.charAt(i));
+            if (tokenChar && start < 0) {
+                start = i;
+            } else if (!tokenChar && start >= 0) {
+                tokens.add(normalized.substring(start, i));
+                start = -1;
+            }
+        }
+        return tokens;
+    }
+}
@@ -0,0 +1,65 @@
+package com.reactivespring.service;
+
+import com.reactivespring.exception.InvalidFieldSelectionException;
+import org.springframework.data.mongodb.core.query.Query;
+
+import java.util.Arrays;
+import java.util.LinkedHashSet;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * The MovieInfo fields a reader asked for with {@code fields=name,year}, applied as a Mongo projection so the
+ * other fields are never read, sent or serialized. movieId and version are always returned.
+ */
+public class FieldSelection {
+
+    public static final Set<String> FIELDS = Set.of("movieId", "name", "description", "cast", "releaseDate", "year");
+
+    public static final FieldSelection ALL = new FieldSelection(Set.of());
+
+    private final Set<String> fields;
+
+    private FieldSelection(Set<String> fields) {
+        this.fields = fields;
+    }
+
+    public static FieldSelection parse(String fields) {
+        if (fields == null || fields.isBlank()) {
+            return ALL;
+        }
+        var selected = Arrays.stream(fields.split(","))
+                .map(String::trim)
+                .filter(field -> !field.isEmpty())
+                .collect(Collectors.toCollection(LinkedHashSet::new));
+        var unknown = selected.stream()
+                .filter(field -> !FIELDS.contains(field))
+                .sorted()
+                .collect(Collectors.joining(","));
+        if (!unknown.isEmpty()) {
+            throw new InvalidFieldSelectionException("Unknown MovieInfo fields : " + unknown);
+        }
+        return selected.isEmpty() ? ALL : new FieldSelection(selected);
+    }
+
+    public boolean isAll() {
+        return fields.isEmpty();
+    }
+
+    public Query applyTo(Query query) {
+        if (isAll()) {
+            return query;
+        }
+        fields.forEach(field -> query.fields().include(field));
+        // needed for the ETag
+        query.fields().include("version");
+        return query;
+    }
+
+    /**
+     * Distinguishes the ETags of different projections of the same document version.
+     */
+    public String tag() {
+        return isAll() ? "" : String.join(",", fields);
+    }
+}
@@ -0,0 +1,207 @@
+package com.reactivespring.service;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.model.InsertManyOptions;
+import com.reactivespring.cache.MovieInfoCache;
+import com.reactivespring.domain.BulkIngestResult;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.stream.MovieInfoEventPublisher;
+import org.bson.Document;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import javax.validation.ConstraintViolation;
+import javax.validation.Validator;
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+/**
+ * Ingests an NDJSON stream of MovieInfo documents. Lines are parsed and validated one by one and written
+ * in batches bounded by size and time; the request body is only read as fast as the batches are written,
+ * so memory stays bounded by the batch size whatever the length of the upload.
+ * <p>
+ * A batch is closed by the line that fills it or by the first line arriving after {@code batchTimeout}, not by a
+ * timer: {@code bufferTimeout} flushes on its timer whether or not a batch has been requested and fails with
+ * "Could not emit buffer due to lack of requests" while a slow insert holds the demand. An upload that goes idle
+ * keeps its partial batch until the next line or the end of the body.
+ */
+@Service
+public class MovieBulkIngestService {
+
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    private ObjectMapper objectMapper;
+
+    private Validator validator;
+
+    private MovieInfoEventPublisher movieInfoEventPublisher;
+
+    private MovieInfoCache movieInfoCache;
+
+    @Value("${movieInfo.bulk.batchSize:500}")
+    private int batchSize = 500;
+
+    @Value("${movieInfo.bulk.batchTimeout:200ms}")
+    private Duration batchTimeout = Duration.ofMillis(200);
+
+    @Value("${movieInfo.bulk.maxReportedErrors:100}")
+    private int maxReportedErrors = 100;
+
+    public MovieBulkIngestService(ReactiveMongoTemplate reactiveMongoTemplate, ObjectMapper objectMapper,
+                                  Validator validator, MovieInfoEventPublisher movieInfoEventPublisher,
+                                  MovieInfoCache movieInfoCache) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.objectMapper = objectMapper;
+        this.validator = validator;
+        this.movieInfoEventPublisher = movieInfoEventPublisher;
+        this.movieInfoCache = movieInfoCache;
+    }
+
+    public Mono<BulkIngestResult> ingest(Flux<String> lines) {
+        return lines
+                .index((index, line) -> parse(index + 1, line))
+                .filter(parsed -> !parsed.blank)
+                .transform(this::batches)
+                // one batch is written while at most the next one is read, bufferUntil pulls its lines one at a time
+                .concatMap(this::insertBatch, 1)
+                .reduce(new BulkIngestResult(), this::accumulate);
+    }
+
+    private Flux<List<ParsedLine>> batches(Flux<ParsedLine> lines) {
+        // the boundary keeps per-subscription state, so it is created per subscription
+        return Flux.defer(() -> lines.bufferUntil(new BatchBoundary(batchSize, batchTimeout)));
+    }
+
+    private ParsedLine parse(long lineNumber, String line) {
+        if (line.isBlank()) {
+            return ParsedLine.blank(lineNumber);
+        }
+        try {
+            var movieInfo = objectMapper.readValue(line, MovieInfo.class);
+            // documents are written raw, so the initial version the template would set is set here
+            movieInfo.setVersion(0L);
+            var violations = validator.validate(movieInfo);
+            if (!violations.isEmpty()) {
+                var error = violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining(","));
+                return ParsedLine.failed(lineNumber, error);
+            }
+            return ParsedLine.parsed(lineNumber, movieInfo);
+        } catch (JsonProcessingException ex) {
+            return ParsedLine.failed(lineNumber, "Malformed MovieInfo : " + ex.getOriginalMessage());
+        }
+    }
+
+    private Flux<ParsedLine> insertBatch(List<ParsedLine> batch) {
+        var valid = batch.stream()
+                .filter(parsed -> parsed.error == null)
+                .collect(Collectors.toList());
+        if (valid.isEmpty()) {
+            return Flux.fromIterable(batch);
+        }
+        var documents = valid.stream()
+                .map(parsed -> {
+                    var document = new Document();
+                    reactiveMongoTemplate.getConverter().write(parsed.movieInfo, document);
+                    return document;
+                })
+                .collect(Collectors.toList());
+        // unordered, so one bad document neither stops the batch nor hides which line it came from
+        var options = new InsertManyOptions().ordered(false);
+        return reactiveMongoTemplate.getCollection(reactiveMongoTemplate.getCollectionName(MovieInfo.class))
+                .flatMap(collection -> Mono.from(collection.insertMany(documents, options)))
+                .map(insertManyResult -> Map.<Integer, String>of())
+                .onErrorResume(MongoBulkWriteException.class, ex -> Mono.just(ex.getWriteErrors().stream()
+                        .collect(Collectors.toMap(BulkWriteError::getIndex, BulkWriteError::getMessage))))
+                .flatMapMany(writeErrors -> {
+                    for (int i = 0; i < valid.size(); i++) {
+                        var parsed = valid.get(i);
+                        if (writeErrors.containsKey(i)) {
+                            parsed.error = writeErrors.get(i);
+                        } else {
+                            // the driver has assigned the generated _id to the document
+                            var inserted = reactiveMongoTemplate.getConverter().read(MovieInfo.class, documents.get(i));
+                            movieInfoCache.invalidate(inserted);
+                            movieInfoEventPublisher.created(inserted);
+                        }
+                    }
+                    return Flux.fromIterable(batch);
+                });
+    }
+
+    private BulkIngestResult accumulate(BulkIngestResult result, ParsedLine parsed) {
+        result.setReceived(result.getReceived() + 1);
+        if (parsed.error == null) {
+            result.setInserted(result.getInserted() + 1);
+            return result;
+        }
+        result.setFailed(result.getFailed() + 1);
+        if (result.getErrors().size() < maxReportedErrors) {
+            result.getErrors().add(new BulkIngestResult.LineError(parsed.lineNumber, parsed.error));
+        }
+        return result;
+    }
+
+    // true for the line that closes the current batch, either by filling it or by arriving after the timeout
+    private static class BatchBoundary implements Predicate<ParsedLine> {
+        private final int batchSize;
+        private final long batchTimeoutNanos;
+        private int lines;
+        private long batchStart;
+
+        BatchBoundary(int batchSize, Duration batchTimeout) {
+            this.batchSize = batchSize;
+            this.batchTimeoutNanos = batchTimeout.toNanos();
+        }
+
+        @Override
+        public boolean test(ParsedLine parsed) {
+            var now = System.nanoTime();
+            if (lines++ == 0) {
+                batchStart = now;
+            }
+            if (lines >= batchSize || now - batchStart >= batchTimeoutNanos) {
+                lines = 0;
+                return true;
+            }
+            return false;
+        }
+    }
+
+    private static class ParsedLine {
+        private final long lineNumber;
+        private final MovieInfo movieInfo;
+        private String error;
+        private final boolean blank;
+
+        private ParsedLine(long lineNumber, MovieInfo movieInfo, String error, boolean blank) {
+            this.lineNumber = lineNumber;
+            this.movieInfo = movieInfo;
+            this.error = error;
+            this.blank = blank;
+        }
+
+        static ParsedLine parsed(long lineNumber, MovieInfo movieInfo) {
+            return new ParsedLine(lineNumber, movieInfo, null, false);
+        }
+
+        static ParsedLine failed(long lineNumber, String error) {
+            return new ParsedLine(lineNumber, null, error, false);
+        }
+
+        static ParsedLine blank(long lineNumber) {
+            return new ParsedLine(lineNumber, null, null, true);
+        }
+    }
+}
@@ -1,55 +1,185 @@
 package com.reactivespring.service;
 
+import com.reactivespring.cache.MovieInfoCache;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.exception.MovieInfoPreconditionFailedException;
+import com.reactivespring.paging.KeysetPaging;
 import com.reactivespring.repository.MovieRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
 import org.springframework.stereotype.Service;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
+import java.util.List;
+import java.util.Objects;
+import java.util.stream.Collectors;
+
 @Service
 public class MovieService {
 
     private MovieRepository movieRepository;
 
-    public MovieService(MovieRepository movieRepository) {
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    private MovieInfoCache movieInfoCache;
+
+    @Value("${movieInfo.query.cursorBatchSize:500}")
+    private int cursorBatchSize = 500;
+
+    public MovieService(MovieRepository movieRepository, ReactiveMongoTemplate reactiveMongoTemplate,
+                        MovieInfoCache movieInfoCache) {
         this.movieRepository = movieRepository;
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.movieInfoCache = movieInfoCache;
     }
 
     public Mono<MovieInfo> addMovie(MovieInfo movie) {
-        return movieRepository.save(movie);
+        return movieRepository.save(movie)
+                .doOnNext(movieInfoCache::invalidate);
     }
 
+    /**
+     * Every MovieInfo in _id order. The driver fetches one cursor batch per demand, so a slow consumer
+     * holds back the cursor instead of buffering the collection.
+     */
     public Flux<MovieInfo> getAllMovies() {
-        return movieRepository.findAll();
+        var query = new Query()
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .cursorBatchSize(cursorBatchSize);
+        return reactiveMongoTemplate.find(query, MovieInfo.class);
+    }
+
+    /**
+     * Up to {@code limit} MovieInfos whose id sorts after {@code after}, in _id order, with only the selected fields.
+     */
+    public Flux<MovieInfo> getMoviesPage(String after, int limit, FieldSelection fields) {
+        var query = fields.applyTo(new Query())
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(limit)
+                .cursorBatchSize(Math.min(limit, cursorBatchSize));
+        if (after != null) {
+            query.addCriteria(KeysetPaging.afterId(after));
+        }
+        return reactiveMongoTemplate.find(query, MovieInfo.class);
+    }
+
+    /**
+     * The MovieInfos with the given ids in one query, in the order of {@code ids}; ids without a document are skipped.
+     */
+    public Flux<MovieInfo> getMoviesByIds(List<String> ids, FieldSelection fields) {
+        if (ids.isEmpty()) {
+            return Flux.empty();
+        }
+        var query = fields.applyTo(new Query(Criteria.where("_id").in(ids)));
+        return reactiveMongoTemplate.find(query, MovieInfo.class)
+                .collectMap(MovieInfo::getMovieId)
+                .flatMapIterable(byId -> ids.stream()
+                        .map(byId::get)
+                        .filter(Objects::nonNull)
+                        .collect(Collectors.toList()));
     }
 
     public Mono<MovieInfo> getMovieById(String id) {
-        return movieRepository.findById(id);
+        return movieInfoCache.getById(id, () -> movieRepository.findById(id));
+    }
+
+    public Mono<MovieInfo> getMovieById(String id, FieldSelection fields) {
+        if (fields.isAll()) {
+            return getMovieById(id);
+        }
+        return reactiveMongoTemplate.findOne(fields.applyTo(new Query(Criteria.where("_id").is(id))), MovieInfo.class);
     }
 
     public Mono<MovieInfo> updateMovie(String id, MovieInfo newMovie) {
-        return movieRepository.findById(id)
-                .flatMap(
-                        movie -> {
-                            movie.setName(newMovie.getName());
-                            movie.setDescription(newMovie.getDescription());
-                            movie.setCast(newMovie.getCast());
-                            movie.setReleaseDate(newMovie.getReleaseDate());
-                            movie.setYear(newMovie.getYear());
-                            return movieRepository.save(movie);
-                        }
-                );
+        return updateMovie(id, newMovie, null);
     }
 
-    public Mono<Void> deleteMovie(String id) {
-        return movieRepository.deleteById(id);
+    /**
+     * Applies the update in one findAndModify, only if the stored document is still at {@code expectedVersion}
+     * when one is given. Returns the updated document, or empty if there is no document with that id.
+     */
+    public Mono<MovieInfo> updateMovie(String id, MovieInfo newMovie, Long expectedVersion) {
+        var criteria = Criteria.where("_id").is(id);
+        if (expectedVersion != null) {
+            criteria = criteria.and("version").is(expectedVersion);
+        }
+        var update = new Update()
+                .set("name", newMovie.getName())
+                .set("description", newMovie.getDescription())
+                .set("cast", newMovie.getCast())
+                .set("releaseDate", newMovie.getReleaseDate())
+                .set("year", newMovie.getYear())
+                .inc("version", 1);
+        // the previous version is returned so the cache entries of its year and name can be dropped too;
+        // the new version follows from it because every field is overwritten
+        var options = FindAndModifyOptions.options().returnNew(false);
+        return reactiveMongoTemplate.findAndModify(new Query(criteria), update, options, MovieInfo.class)
+                .map(previous -> {
+                    movieInfoCache.invalidate(previous);
+                    var version = previous.getVersion() != null ? previous.getVersion() : 0L;
+                    var updated = new MovieInfo(previous.getMovieId(), newMovie.getName(), newMovie.getDescription(),
+                            newMovie.getCast(), newMovie.getReleaseDate(), newMovie.getYear(), version + 1);
+                    movieInfoCache.invalidate(updated);
+                    return updated;
+                })
+                .switchIfEmpty(Mono.defer(() -> expectedVersion == null
+                        ? Mono.empty()
+                        // no match under the version condition, tell a stale version from a missing document
+                        : movieRepository.existsById(id)
+                                .flatMap(exists -> exists
+                                        ? Mono.error(new MovieInfoPreconditionFailedException(
+                                                "MovieInfo " + id + " is not at version " + expectedVersion))
+                                        : Mono.empty())));
+    }
+
+    /**
+     * Removes the document in one round trip, emitting whether there was one to remove.
+     */
+    public Mono<Boolean> deleteMovie(String id) {
+        // the removed document tells which year and name entries to drop
+        return reactiveMongoTemplate.findAndRemove(new Query(Criteria.where("_id").is(id)), MovieInfo.class)
+                .doOnNext(movieInfoCache::invalidate)
+                .doFinally(signalType -> movieInfoCache.invalidateId(id))
+                .hasElement();
     }
 
     public Flux<MovieInfo> getMoviesByYear(Integer year) {
-        return movieRepository.findByYear(year);
+        return movieInfoCache.getByYear(year, () -> movieRepository.findByYear(year));
     }
 
     public Flux<MovieInfo> getMoviesByName(String name) {
-        return  movieRepository.findByName(name);
+        return movieInfoCache.getByName(name, () -> movieRepository.findByName(name));
+    }
+
+    public Flux<MovieInfo> getMoviesByYearAndName(Integer year, String name) {
+        return movieInfoCache.getByYearAndName(year, name, () -> movieRepository.findByYearAndName(year, name));
+    }
+
+    public Flux<MovieInfo> getMoviesByYear(Integer year, FieldSelection fields) {
+        if (fields.isAll()) {
+            return getMoviesByYear(year);
+        }
+        return reactiveMongoTemplate.find(fields.applyTo(new Query(Criteria.where("year").is(year))), MovieInfo.class);
+    }
+
+    public Flux<MovieInfo> getMoviesByName(String name, FieldSelection fields) {
+        if (fields.isAll()) {
+            return getMoviesByName(name);
+        }
+        return reactiveMongoTemplate.find(fields.applyTo(new Query(Criteria.where("name").is(name))), MovieInfo.class);
+    }
+
+    public Flux<MovieInfo> getMoviesByYearAndName(Integer year, String name, FieldSelection fields) {
+        if (fields.isAll()) {
+            return getMoviesByYearAndName(year, name);
+        }
+        var criteria = Criteria.where("year").is(year).and("name").is(name);
+        return reactiveMongoTemplate.find(fields.applyTo(new Query(criteria)), MovieInfo.class);
     }
 }
@@ -0,0 +1,122 @@
+package com.reactivespring.stream;
+
+import com.reactivespring.cache.MovieInfoCache;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.BsonValue;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ChangeStreamEvent;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+
+/**
+ * Holds this instance's single change-stream cursor on the MovieInfo collection and appends every insert,
+ * update and delete to the replay buffer, which fans them out to the local /stream subscribers. A dropped
+ * cursor is reopened after the last resume token seen, so no write is missed across reconnects.
+ * Writes made through other instances also invalidate the local read cache; a change event carries only the
+ * new version of a document (and only the key of a deleted one), so query entries for its old year or name
+ * expire with the cache ttl.
+ */
+@Component
+@ConditionalOnProperty(name = "movieInfo.stream.source", havingValue = "change-stream")
+@Slf4j
+public class MovieInfoChangeStreamListener {
+
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    private MovieInfoReplayBuffer movieInfoReplayBuffer;
+
+    private MovieInfoCache movieInfoCache;
+
+    private volatile BsonValue resumeToken;
+
+    private Disposable subscription;
+
+    public MovieInfoChangeStreamListener(ReactiveMongoTemplate reactiveMongoTemplate,
+                                         MovieInfoReplayBuffer movieInfoReplayBuffer,
+                                         MovieInfoCache movieInfoCache) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.movieInfoReplayBuffer = movieInfoReplayBuffer;
+        this.movieInfoCache = movieInfoCache;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        subscription = Flux.defer(this::listen)
+                .doOnNext(event -> {
+                    publish(event);
+                    resumeToken = event.getResumeToken();
+                })
+                .doOnError(ex -> log.warn("MovieInfo change stream failed, resuming : {}", ex.getMessage()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .subscribe();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (subscription != null) {
+            subscription.dispose();
+        }
+    }
+
+    private Flux<ChangeStreamEvent<MovieInfo>> listen() {
+        var token = resumeToken;
+        return reactiveMongoTemplate.changeStream(MovieInfo.class)
+                .watchCollection(MovieInfo.class)
+                .withOptions(options -> {
+                    options.returnFullDocumentOnUpdate();
+                    if (token != null) {
+                        options.resumeAfter(token);
+                    }
+                })
+                .listen();
+    }
+
+    private void publish(ChangeStreamEvent<MovieInfo> event) {
+        var operationType = event.getOperationType();
+        if (operationType == null) {
+            return;
+        }
+        switch (operationType) {
+            case INSERT:
+                append(MovieInfoEvent.Type.CREATED, event);
+                break;
+            case UPDATE:
+            case REPLACE:
+                append(MovieInfoEvent.Type.UPDATED, event);
+                break;
+            case DELETE:
+                // deletes carry no document, only its key
+                var movieId = documentId(event);
+                movieInfoCache.invalidateId(movieId);
+                movieInfoReplayBuffer.append(new MovieInfoEvent(MovieInfoEvent.Type.DELETED, movieId, null));
+                break;
+            default:
+                log.debug("Ignoring MovieInfo change of type {}", operationType);
+        }
+    }
+
+    private void append(MovieInfoEvent.Type type, ChangeStreamEvent<MovieInfo> event) {
+        var movieInfo = event.getBody();
+        if (movieInfo == null) {
+            // the document was deleted before the update could be looked up
+            return;
+        }
+        movieInfoCache.invalidate(movieInfo);
+        movieInfoReplayBuffer.append(new MovieInfoEvent(type, movieInfo.getMovieId(), movieInfo));
+    }
+
+    private String documentId(ChangeStreamEvent<MovieInfo> event) {
+        var id = event.getRaw().getDocumentKey().get("_id");
+        return id.isObjectId() ? id.asObjectId().getValue().toHexString() : id.asString().getValue();
+    }
+}
@@ -0,0 +1,43 @@
+package com.reactivespring.stream;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+/**
+ * Publishes writes made through this instance. With {@code movieInfo.stream.source=change-stream} the events
+ * come from {@link MovieInfoChangeStreamListener} instead, so every instance sees every write exactly once
+ * and local publishing is switched off.
+ */
+@Component
+public class MovieInfoEventPublisher {
+
+    private MovieInfoReplayBuffer movieInfoReplayBuffer;
+
+    private boolean local;
+
+    public MovieInfoEventPublisher(MovieInfoReplayBuffer movieInfoReplayBuffer,
+                                   @Value("${movieInfo.stream.source:local}") String source) {
+        this.movieInfoReplayBuffer = movieInfoReplayBuffer;
+        this.local = "local".equals(source);
+    }
+
+    public void created(MovieInfo movieInfo) {
+        publish(new MovieInfoEvent(MovieInfoEvent.Type.CREATED, movieInfo.getMovieId(), movieInfo));
+    }
+
+    public void updated(MovieInfo movieInfo) {
+        publish(new MovieInfoEvent(MovieInfoEvent.Type.UPDATED, movieInfo.getMovieId(), movieInfo));
+    }
+
+    public void deleted(String movieId) {
+        publish(new MovieInfoEvent(MovieInfoEvent.Type.DELETED, movieId, null));
+    }
+
+    private void publish(MovieInfoEvent event) {
+        if (local) {
+            movieInfoReplayBuffer.append(event);
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.reactivespring.stream;
+
+import com.reactivespring.domain.MovieInfoEvent;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+@Component
+public class MovieInfoReplayBuffer extends ReplayBuffer<MovieInfoEvent> {
+
+    public MovieInfoReplayBuffer(@Value("${movieInfo.stream.bufferCapacity:1024}") int capacity,
+                                 ObjectProvider<MeterRegistry> meterRegistry) {
+        super(capacity);
+        var registry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        FunctionCounter.builder("movieinfo.stream.emit.failures", this, ReplayBuffer::emitFailures)
+                .register(registry);
+        Gauge.builder("movieinfo.stream.emit.pending", this, ReplayBuffer::pending)
+                .register(registry);
+    }
+}
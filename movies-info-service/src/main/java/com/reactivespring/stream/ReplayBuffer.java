@@ -0,0 +1,144 @@
+package com.reactivespring.stream;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * Fixed-capacity ring of the most recent events, each stamped with a monotonically increasing sequence number.
+ * Subscribers pass the last sequence they have seen and receive only what came after it; once a subscriber falls
+ * more than {@code capacity} events behind, the overwritten events are skipped and it resumes at the oldest one
+ * still held. Memory is bounded by the capacity no matter how many events are appended.
+ */
+public class ReplayBuffer<T> {
+
+    private final int capacity;
+
+    private final AtomicReferenceArray<SequencedEvent<T>> slots;
+
+    // sequence of the last published event, written only after its slot is filled
+    private final AtomicLong tail = new AtomicLong();
+
+    // carries no data, only wakes subscribers up to read from their own cursor
+    private final Sinks.Many<Long> notifications = Sinks.many().multicast().directBestEffort();
+
+    // concurrent appends are queued and applied by one thread at a time, instead of contending on a lock
+    private final SerializedEmitter<T> writer = new SerializedEmitter<>(this::write);
+
+    private final AtomicLong emitFailures = new AtomicLong();
+
+    public ReplayBuffer(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be positive : " + capacity);
+        }
+        this.capacity = capacity;
+        this.slots = new AtomicReferenceArray<>(capacity);
+    }
+
+    /**
+     * Appends the event. It is visible to readers when this returns, unless another thread is appending at the same
+     * time, in which case that thread, or the handoff scheduler once its drain pass is used up, publishes it, in the
+     * order the appends were queued.
+     */
+    public void append(T payload) {
+        writer.emit(payload);
+    }
+
+    private void write(T payload) {
+        var sequence = tail.get() + 1;
+        slots.set(index(sequence), new SequencedEvent<>(sequence, payload));
+        tail.set(sequence);
+        var result = notifications.tryEmitNext(sequence);
+        if (result.isFailure() && result != Sinks.EmitResult.FAIL_ZERO_SUBSCRIBER) {
+            // the event is in the ring regardless, subscribers pick it up on their next wake-up
+            emitFailures.incrementAndGet();
+        }
+    }
+
+    /**
+     * Live feed of every event after {@code since}, starting with whatever is still buffered.
+     * {@code since = 0} replays the whole buffer, {@link #latestSequence()} replays nothing.
+     */
+    public Flux<SequencedEvent<T>> subscribe(long since) {
+        return Flux.defer(() -> {
+            var cursor = new AtomicLong(since);
+            // notifications are subscribed before the initial read, so nothing appended in between is missed;
+            // bursts of notifications collapse into one read because each read drains up to the tail
+            return Flux.merge(notifications.asFlux(), Mono.just(0L))
+                    .onBackpressureLatest()
+                    .concatMap(tick -> readAfter(cursor.get())
+                            .doOnNext(event -> cursor.set(event.getSequence())), 1);
+        });
+    }
+
+    /**
+     * Events currently buffered after {@code since}, completing at the tail observed while reading.
+     */
+    public Flux<SequencedEvent<T>> readAfter(long since) {
+        return Flux.generate(() -> since, (last, sink) -> {
+            var next = next(last);
+            if (next == null) {
+                sink.complete();
+                return last;
+            }
+            sink.next(next);
+            return next.getSequence();
+        });
+    }
+
+    public long latestSequence() {
+        return tail.get();
+    }
+
+    public int capacity() {
+        return capacity;
+    }
+
+    // slots holding an event, never more than the capacity however many events were appended
+    int occupiedSlots() {
+        var occupied = 0;
+        for (int i = 0; i < slots.length(); i++) {
+            if (slots.get(i) != null) {
+                occupied++;
+            }
+        }
+        return occupied;
+    }
+
+    /**
+     * Appends still queued behind the thread currently writing.
+     */
+    public int pending() {
+        return writer.pending();
+    }
+
+    /**
+     * Wake-up notifications the sink rejected, other than for having no subscribers.
+     */
+    public long emitFailures() {
+        return emitFailures.get();
+    }
+
+    private SequencedEvent<T> next(long last) {
+        while (true) {
+            var latest = tail.get();
+            if (last >= latest) {
+                return null;
+            }
+            var sequence = Math.max(last + 1, latest - capacity + 1);
+            var event = slots.get(index(sequence));
+            if (event != null && event.getSequence() == sequence) {
+                return event;
+            }
+            // the slot was overwritten by a writer that lapped us, jump forward to the new oldest event
+            last = sequence;
+        }
+    }
+
+    private int index(long sequence) {
+        return (int) (sequence % capacity);
+    }
+}
@@ -0,0 +1,9 @@
+package com.reactivespring.stream;
+
+import lombok.Value;
+
+@Value
+public class SequencedEvent<T> {
+    long sequence;
+    T payload;
+}
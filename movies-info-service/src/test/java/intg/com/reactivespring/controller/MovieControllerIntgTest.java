@@ -1,5 +1,6 @@
 package com.reactivespring.controller;
 
+import com.reactivespring.domain.BulkIngestResult;
 import com.reactivespring.domain.MovieInfo;
 import com.reactivespring.repository.MovieRepository;
 import org.junit.jupiter.api.AfterEach;
@@ -8,6 +9,8 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import org.springframework.web.util.UriComponentsBuilder;
@@ -16,13 +19,15 @@ import reactor.test.StepVerifier;
 import java.time.LocalDate;
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
 
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles("test")
 @AutoConfigureWebTestClient
 public class MovieControllerIntgTest {
 
-    public static final String MOVIES_URI = "/v1/movie-infos";
+    public static final String MOVIES_URI = "/v1/movieinfos";
     @Autowired
     MovieRepository movieRepository;
 
@@ -68,6 +73,24 @@ public class MovieControllerIntgTest {
         //then
     }
 
+    @Test
+    public void addMovieWithExistingIdConflicts() {
+        //given
+        var movie = new MovieInfo("123", "Harry Potter and the Chamber of Secrets", "Description 2", List.of("Actor 1"), LocalDate.of(2002, 11, 15), 2002);
+
+        //when
+        webTestClient.post().uri(MOVIES_URI)
+                .bodyValue(movie)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.CONFLICT);
+
+        //then
+        StepVerifier.create(movieRepository.findById("123"))
+                .assertNext(stored -> assertEquals("Harry Potter", stored.getName()))
+                .verifyComplete();
+    }
+
     @Test
     public void getAllMovie() {
         //given
@@ -83,6 +106,113 @@ public class MovieControllerIntgTest {
         //then
     }
 
+    @Test
+    public void getAllMoviePaginated() {
+        //given
+        var firstPage = webTestClient.get().uri(MOVIES_URI + "?limit=2")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader().exists("X-Continuation-Token")
+                .expectBodyList(MovieInfo.class)
+                .hasSize(2)
+                .returnResult();
+        var continuationToken = firstPage.getResponseHeaders().getFirst("X-Continuation-Token");
+
+        //when
+        webTestClient.get().uri(MOVIES_URI + "?limit=2&after={after}", continuationToken)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader().doesNotExist("X-Continuation-Token")
+                .expectBodyList(MovieInfo.class)
+                //then
+                .hasSize(1)
+                .value(movieInfos -> {
+                    assert firstPage.getResponseBody().stream()
+                            .noneMatch(movieInfo -> movieInfo.getMovieId().equals(movieInfos.get(0).getMovieId()));
+                });
+    }
+
+    @Test
+    public void getAllMovieWithFields() {
+        //given
+        var fullBytes = webTestClient.get().uri(MOVIES_URI)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody(byte[].class)
+                .returnResult()
+                .getResponseBody();
+
+        //when
+        var projectedBytes = webTestClient.get().uri(MOVIES_URI + "?fields=movieId,name,year")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody()
+                .jsonPath("$.length()").isEqualTo(3)
+                .jsonPath("$[0].name").exists()
+                .jsonPath("$[0].year").exists()
+                .jsonPath("$[0].description").doesNotExist()
+                .jsonPath("$[0].cast").doesNotExist()
+                .returnResult()
+                .getResponseBody();
+
+        //then
+        assert projectedBytes.length < fullBytes.length;
+    }
+
+    @Test
+    public void bulkAddMovies() {
+        //given
+        var body = String.join("\n",
+                "{\"name\":\"Dark Knight\",\"year\":2008,\"cast\":[\"Christian Bale\"],\"releaseDate\":\"2008-07-18\"}",
+                "{\"name\":\"Inception\",",
+                "{\"movieId\":\"bulk-1\",\"name\":\"Memento\",\"year\":2000}",
+                "{\"name\":\"\",\"year\":-1}",
+                "",
+                "{\"movieId\":\"123\",\"name\":\"Harry Potter Again\",\"year\":2008}");
+
+        //when
+        webTestClient.post().uri(MOVIES_URI + "/bulk")
+                .contentType(MediaType.APPLICATION_NDJSON)
+                .bodyValue(body)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectBody(BulkIngestResult.class)
+                //then
+                .consumeWith(response -> {
+                    var result = response.getResponseBody();
+                    assert result != null;
+                    assertEquals(5, result.getReceived());
+                    assertEquals(2, result.getInserted());
+                    assertEquals(3, result.getFailed());
+                    assertEquals(List.of(2L, 4L, 6L), result.getErrors().stream().map(BulkIngestResult.LineError::getLine).toList());
+                    assertEquals("Movie name must be provided,Year must be a positive number", result.getErrors().get(1).getError());
+                });
+        StepVerifier.create(movieRepository.count())
+                .expectNext(5L)
+                .verifyComplete();
+    }
+
+    @Test
+    public void exportMovies() {
+        //when
+        var exportFlux = webTestClient.get().uri(MOVIES_URI + "/export")
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .returnResult(MovieInfo.class)
+                .getResponseBody();
+
+        //then
+        StepVerifier.create(exportFlux)
+                .expectNextCount(3)
+                .verifyComplete();
+    }
+
     @Test
     public void getAllMovieByYear() {
         //given
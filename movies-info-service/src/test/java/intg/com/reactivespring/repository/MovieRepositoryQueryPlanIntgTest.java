@@ -0,0 +1,82 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.test.FindCommands;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@DataMongoTest
+@ActiveProfiles("test")
+@Import({MovieInfoIndexInitializer.class, FindCommands.class})
+class MovieRepositoryQueryPlanIntgTest {
+
+    @Autowired
+    MovieRepository movieRepository;
+
+    @Autowired
+    ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Autowired
+    FindCommands findCommands;
+
+    @BeforeEach
+    void setUp() {
+        var movieList = List.of(
+                new MovieInfo(null, "Batman", "Description 1", List.of("Christian Bale", "Actor 2"), LocalDate.of(2018, 10, 1), 2018),
+                new MovieInfo(null, "Mission Impossible", "Description 1", List.of("Actor 1", "Actor 2"), LocalDate.of(2025, 10, 1), 2025),
+                new MovieInfo("123", "Harry Potter", "Description 1", List.of("Actor 1", "Actor 2"), LocalDate.of(2008, 10, 1), 2008)
+        );
+        movieRepository.saveAll(movieList).blockLast();
+    }
+
+    @AfterEach
+    void tearDown() {
+        movieRepository.deleteAll().block();
+    }
+
+    @Test
+    void findByYearUsesIndex() {
+        assertNoCollectionScan(movieRepository.findByYear(2018));
+    }
+
+    @Test
+    void findByNameUsesIndex() {
+        assertNoCollectionScan(movieRepository.findByName("Batman"));
+    }
+
+    @Test
+    void findByYearAndNameUsesIndex() {
+        assertNoCollectionScan(movieRepository.findByYearAndName(2018, "Batman"));
+    }
+
+    // explains the find command the repository method actually sent, not a hand-written copy of it
+    private void assertNoCollectionScan(Flux<MovieInfo> query) {
+        findCommands.clear();
+        query.blockLast();
+        var find = findCommands.last(reactiveMongoTemplate.getCollectionName(MovieInfo.class));
+        assertNotNull(find, "no find command was sent");
+        var explain = new BsonDocument("explain", find).append("verbosity", new BsonString("queryPlanner"));
+        var plan = reactiveMongoTemplate.getMongoDatabase()
+                .flatMap(database -> Mono.from(database.runCommand(explain)))
+                .block();
+        var winningPlan = plan.get("queryPlanner", Document.class).get("winningPlan", Document.class).toJson();
+        assertFalse(winningPlan.contains("COLLSCAN"), "collection scan for " + find.toJson() + " : " + winningPlan);
+    }
+}
@@ -0,0 +1,93 @@
+package com.reactivespring.service;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.exception.MovieInfoPreconditionFailedException;
+import com.reactivespring.repository.MovieRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class MovieServiceConcurrencyIntgTest {
+
+    public static final int PARALLEL_UPDATES = 50;
+
+    @Autowired
+    MovieService movieService;
+
+    @Autowired
+    MovieRepository movieRepository;
+
+    @BeforeEach
+    void setUp() {
+        movieRepository.save(new MovieInfo("123", "Harry Potter", "Description 1", List.of("Actor 1", "Actor 2"), LocalDate.of(2008, 10, 1), 2008))
+                .block();
+    }
+
+    @AfterEach
+    void tearDown() {
+        movieRepository.deleteAll().block();
+    }
+
+    @Test
+    void parallelUpdatesAreNotLost() {
+        //when
+        var versions = Flux.range(1, PARALLEL_UPDATES)
+                .parallel()
+                .runOn(Schedulers.parallel())
+                .flatMap(i -> movieService.updateMovie("123", movieInfo("Harry Potter " + i)))
+                .sequential()
+                .map(MovieInfo::getVersion)
+                .collect(Collectors.toSet())
+                .block();
+
+        //then
+        // every update saw a different previous version, so none of them overwrote another unseen
+        assertEquals(PARALLEL_UPDATES, versions.size());
+        assertEquals(PARALLEL_UPDATES, movieRepository.findById("123").block().getVersion());
+    }
+
+    @Test
+    void parallelConditionalUpdatesHaveOneWinner() {
+        //given
+        var version = movieRepository.findById("123").block().getVersion();
+
+        //when
+        var outcomes = Flux.range(1, PARALLEL_UPDATES)
+                .parallel()
+                .runOn(Schedulers.parallel())
+                .flatMap(i -> movieService.updateMovie("123", movieInfo("Harry Potter " + i), version)
+                        .map(updated -> "updated")
+                        .onErrorResume(MovieInfoPreconditionFailedException.class, ex -> Mono.just("rejected")))
+                .sequential()
+                .collect(Collectors.groupingBy(outcome -> outcome, Collectors.counting()))
+                .block();
+
+        //then
+        assertEquals(1L, outcomes.get("updated"));
+        assertEquals(PARALLEL_UPDATES - 1L, outcomes.get("rejected"));
+    }
+
+    @Test
+    void deleteReportsWhetherADocumentWasRemoved() {
+        assertEquals(true, movieService.deleteMovie("123").block());
+        assertEquals(false, movieService.deleteMovie("123").block());
+    }
+
+    private MovieInfo movieInfo(String name) {
+        return new MovieInfo(null, name, "Description 1", List.of("Actor 1", "Actor 2"), LocalDate.of(2008, 10, 1), 2008);
+    }
+}
@@ -0,0 +1,86 @@
+package com.reactivespring.stream;
+
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import com.reactivespring.repository.MovieRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import reactor.core.publisher.Flux;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest
+@ActiveProfiles("test")
+@TestPropertySource(
+        properties = {
+                // change streams need a replica set, a single embedded node is enough
+                "spring.mongodb.embedded.storage.repl-set-name=rs0",
+                "movieInfo.stream.source=change-stream"
+        }
+)
+class MovieInfoChangeStreamIntgTest {
+
+    @Autowired
+    MovieRepository movieRepository;
+
+    @Autowired
+    MovieInfoReplayBuffer movieInfoReplayBuffer;
+
+    @AfterEach
+    void tearDown() {
+        movieRepository.deleteAll().block();
+    }
+
+    @Test
+    void writesFromAnyInstanceAreStreamed() {
+        //given
+        // the cursor is opened asynchronously after startup, keep writing until it sees a first write
+        var warmUp = new MovieInfo("warm-up", "Warm Up", "Description", List.of("Actor 1"), LocalDate.of(2020, 1, 1), 2020);
+        var firstEvent = movieInfoReplayBuffer.subscribe(movieInfoReplayBuffer.latestSequence()).next();
+        StepVerifier.create(Flux.interval(Duration.ZERO, Duration.ofMillis(500))
+                        .concatMap(tick -> movieRepository.save(warmUp))
+                        .takeUntilOther(firstEvent)
+                        .then())
+                .verifyComplete();
+        var since = movieInfoReplayBuffer.latestSequence();
+
+        //when
+        // writes go straight to the repository, as if they were made by another instance
+        var movieInfo = new MovieInfo("abc", "Dark Knight Rises", "Description", List.of("Christian Bale"), LocalDate.of(2012, 7, 20), 2012);
+        movieRepository.save(movieInfo)
+                .flatMap(saved -> {
+                    saved.setYear(2013);
+                    return movieRepository.save(saved);
+                })
+                .then(movieRepository.deleteById("abc"))
+                .block();
+
+        //then
+        StepVerifier.create(movieInfoReplayBuffer.subscribe(since)
+                        .map(SequencedEvent::getPayload)
+                        .filter(event -> event.getMovieId().equals("abc")))
+                .assertNext(event -> {
+                    assertEquals(MovieInfoEvent.Type.CREATED, event.getType());
+                    assertEquals("abc", event.getMovieId());
+                })
+                .assertNext(event -> {
+                    assertEquals(MovieInfoEvent.Type.UPDATED, event.getType());
+                    assertEquals(2013, event.getMovieInfo().getYear());
+                })
+                .assertNext(event -> {
+                    assertEquals(MovieInfoEvent.Type.DELETED, event.getType());
+                    assertEquals("abc", event.getMovieId());
+                })
+                .thenCancel()
+                .verify(Duration.ofSeconds(30));
+    }
+}
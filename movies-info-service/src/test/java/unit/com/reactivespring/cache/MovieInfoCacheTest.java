@@ -0,0 +1,80 @@
+package com.reactivespring.cache;
+
+import com.reactivespring.domain.MovieInfo;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MovieInfoCacheTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    MovieInfoCache movieInfoCache = new MovieInfoCache(meterRegistry, true, 100, Duration.ofMinutes(1));
+
+    MovieInfo batman = new MovieInfo("1", "Batman", "Description 1", List.of("Christian Bale"), LocalDate.of(2008, 7, 18), 2008);
+
+    @Test
+    void concurrentMissesLoadOnce() {
+        //given
+        var loads = new AtomicInteger();
+        var load = Mono.delay(Duration.ofMillis(100))
+                .map(tick -> batman)
+                .doOnSubscribe(subscription -> loads.incrementAndGet());
+
+        //when
+        var lookups = Flux.range(0, 10)
+                .flatMap(i -> movieInfoCache.getById("1", () -> load));
+
+        //then
+        StepVerifier.create(lookups)
+                .expectNextCount(10)
+                .verifyComplete();
+        assertEquals(1, loads.get());
+        assertEquals(9.0, meterRegistry.get("cache.gets").tag("cache", "movieInfoCache").tag("lookup", "id")
+                .tag("result", "hit").functionCounter().count());
+    }
+
+    @Test
+    void emptyResultIsNotCached() {
+        //given
+        var loads = new AtomicInteger();
+
+        //when
+        StepVerifier.create(movieInfoCache.getById("1", () -> Mono.<MovieInfo>empty().doOnSubscribe(s -> loads.incrementAndGet())))
+                .verifyComplete();
+        StepVerifier.create(movieInfoCache.getById("1", () -> Mono.just(batman).doOnSubscribe(s -> loads.incrementAndGet())))
+                .expectNext(batman)
+                .verifyComplete();
+
+        //then
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void invalidateDropsOnlyAffectedEntries() {
+        //given
+        var loads = new AtomicInteger();
+        movieInfoCache.getByYear(2008, () -> Flux.just(batman)).blockLast();
+        movieInfoCache.getByYear(2012, () -> Flux.<MovieInfo>empty()).blockLast();
+        movieInfoCache.getByName("Batman", () -> Flux.just(batman)).blockLast();
+
+        //when
+        movieInfoCache.invalidate(new MovieInfo("2", "Dark Knight", null, null, null, 2012));
+
+        //then
+        movieInfoCache.getByYear(2008, () -> Flux.just(batman).doOnSubscribe(s -> loads.incrementAndGet())).blockLast();
+        movieInfoCache.getByName("Batman", () -> Flux.just(batman).doOnSubscribe(s -> loads.incrementAndGet())).blockLast();
+        assertEquals(0, loads.get());
+        movieInfoCache.getByYear(2012, () -> Flux.<MovieInfo>empty().doOnSubscribe(s -> loads.incrementAndGet())).blockLast();
+        assertEquals(1, loads.get());
+    }
+}
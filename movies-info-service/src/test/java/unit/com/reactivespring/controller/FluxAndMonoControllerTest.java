@@ -1,14 +1,17 @@
 package com.reactivespring.controller;
 
+import com.reactivespring.instrumentation.ReactiveInstrumentation;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.test.StepVerifier;
 
 @WebFluxTest(controllers = FluxAndMonoController.class)
 @AutoConfigureWebTestClient
+@Import(ReactiveInstrumentation.class)
 public class FluxAndMonoControllerTest {
 
     @Autowired
@@ -1,12 +1,22 @@
 package com.reactivespring.controller;
 
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.exception.MovieInfoPreconditionFailedException;
+import com.reactivespring.instrumentation.ReactiveInstrumentation;
+import com.reactivespring.service.FieldSelection;
+import com.reactivespring.service.MovieBulkIngestService;
 import com.reactivespring.service.MovieService;
+import com.reactivespring.stream.MovieInfoEventPublisher;
+import com.reactivespring.stream.MovieInfoReplayBuffer;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
@@ -16,11 +26,14 @@ import java.util.List;
 
 import static com.reactivespring.controller.MovieControllerIntgTest.MOVIES_URI;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest(controllers = MoviesController.class)
 @AutoConfigureWebTestClient
+@Import({ReactiveInstrumentation.class, MovieInfoReplayBuffer.class, MovieInfoEventPublisher.class})
 public class MovieControllerTest {
 
     @Autowired
@@ -29,10 +42,13 @@ public class MovieControllerTest {
     @MockBean
     private MovieService movieServiceMock;
 
+    @MockBean
+    private MovieBulkIngestService movieBulkIngestServiceMock;
+
     @Test
     void getAllMovies() {
 
-        when(movieServiceMock.getAllMovies())
+        when(movieServiceMock.getMoviesPage(null, 100, FieldSelection.ALL))
                 .thenReturn(Flux.just(
                         new MovieInfo("1", "Batman", "Description 1", List.of("Christian Bale", "Actor 2"), LocalDate.of(2018, 10, 1), 2018),
                         new MovieInfo("2", "Mission Impossible", "Description 1", List.of("Actor 1", "Actor 2"), LocalDate.of(2025, 10, 1), 2025),
@@ -51,7 +67,7 @@ public class MovieControllerTest {
     void getMovieById() {
 
         String movieId = "1";
-        when(movieServiceMock.getMovieById(isA(String.class)))
+        when(movieServiceMock.getMovieById(isA(String.class), isA(FieldSelection.class)))
                 .thenReturn(Mono.just(
                         new MovieInfo("1", "Batman", "Description 1", List.of("Christian Bale", "Actor 2"), LocalDate.of(2018, 10, 1), 2018)
                 ));
@@ -64,6 +80,58 @@ public class MovieControllerTest {
 
     }
 
+    @Test
+    void getMovieByIdNotModified() {
+
+        String movieId = "1";
+        when(movieServiceMock.getMovieById(isA(String.class), isA(FieldSelection.class)))
+                .thenReturn(Mono.just(
+                        new MovieInfo("1", "Batman", "Description 1", List.of("Christian Bale", "Actor 2"), LocalDate.of(2018, 10, 1), 2018, 3L)
+                ));
+        webTestClient.get().uri(MOVIES_URI+"/{id}",movieId)
+                .exchange()
+                .expectStatus()
+                .is2xxSuccessful()
+                .expectHeader().valueEquals(HttpHeaders.ETAG, "\"3\"");
+
+        webTestClient.get().uri(MOVIES_URI+"/{id}",movieId)
+                .header(HttpHeaders.IF_NONE_MATCH, "\"3\"")
+                .exchange()
+                .expectStatus()
+                .isNotModified()
+                .expectBody()
+                .isEmpty();
+
+    }
+
+    @Test
+    void updateMovieWithStaleIfMatch() {
+
+        var movie = new MovieInfo(null, "Batman Begins", "Description 2", List.of("Christian Bale", "Actor 2"), LocalDate.of(2018, 10, 1), 2018);
+        when(movieServiceMock.updateMovie(isA(String.class), isA(MovieInfo.class), eq(2L)))
+                .thenReturn(Mono.error(new MovieInfoPreconditionFailedException("MovieInfo 123 is at version 3, not 2")));
+
+        webTestClient.put().uri(MOVIES_URI+"/{id}","123")
+                .header(HttpHeaders.IF_MATCH, "\"2\"")
+                .bodyValue(movie)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.PRECONDITION_FAILED);
+
+    }
+
+    @Test
+    void getMovieByIdWithUnknownField() {
+
+        webTestClient.get().uri(MOVIES_URI+"/{id}?fields=name,budget","1")
+                .exchange()
+                .expectStatus()
+                .isBadRequest()
+                .expectBody(String.class)
+                .isEqualTo("Unknown MovieInfo fields : budget");
+
+    }
+
     @Test
     public void addMovie() {
         //given
@@ -91,11 +159,26 @@ public class MovieControllerTest {
                 });
     }
 
+    @Test
+    public void addMovieWithExistingId() {
+        //given
+        var movie = new MovieInfo("123", "Batman Begins", "Description 2", List.of("Christian Bale", "Actor 2"), LocalDate.of(2018, 10, 1), 2018);
+        when(movieServiceMock.addMovie(isA(MovieInfo.class)))
+                .thenReturn(Mono.error(new DuplicateKeyException("E11000 duplicate key error collection: movieInfo index: _id_")));
+
+        //when
+        webTestClient.post().uri(MOVIES_URI)
+                .bodyValue(movie)
+                .exchange()
+                .expectStatus()
+                .isEqualTo(HttpStatus.CONFLICT);
+    }
+
     @Test
     public void updateMovie() {
         //given
         var movie = new MovieInfo(null, "Batman Begins", "Description 2", List.of("Christian Bale", "Actor 2"), LocalDate.of(2018, 10, 1), 2018);
-        when(movieServiceMock.updateMovie(isA(String.class), isA(MovieInfo.class)))
+        when(movieServiceMock.updateMovie(isA(String.class), isA(MovieInfo.class), isNull()))
                 .thenReturn(Mono.just(
                         new MovieInfo("123", "Batman Begins", "Description 2", List.of("Christian Bale", "Actor 2"), LocalDate.of(2018, 10, 1), 2018)
                 ));
@@ -122,7 +205,7 @@ public class MovieControllerTest {
     public void deleteMovie() {
         String movieId="123";
         when(movieServiceMock.deleteMovie(isA(String.class)))
-                .thenReturn(Mono.empty());
+                .thenReturn(Mono.just(true));
         webTestClient.delete().uri(MOVIES_URI+"/{id}",movieId)
                 .exchange()
                 .expectStatus()
@@ -130,6 +213,18 @@ public class MovieControllerTest {
 
     }
 
+    @Test
+    public void deleteMovieNotFound() {
+        String movieId="456";
+        when(movieServiceMock.deleteMovie(isA(String.class)))
+                .thenReturn(Mono.just(false));
+        webTestClient.delete().uri(MOVIES_URI+"/{id}",movieId)
+                .exchange()
+                .expectStatus()
+                .isNotFound();
+
+    }
+
     @Test
     public void whenAddingMovieMandatoryFieldsNeedsToBePresent() {
         //given
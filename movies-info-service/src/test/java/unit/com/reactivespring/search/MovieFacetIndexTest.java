@@ -0,0 +1,126 @@
+package com.reactivespring.search;
+
+import com.reactivespring.domain.MovieInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class MovieFacetIndexTest {
+
+    MovieFacetIndex index = new MovieFacetIndex();
+
+    @BeforeEach
+    void setUp() {
+        index.index(new MovieInfo("1", "Batman Begins", "", List.of("Christian Bale", "Michael Caine"), LocalDate.of(2005, 6, 15), 2005, 0L));
+        index.index(new MovieInfo("2", "The Dark Knight", "", List.of("Christian Bale", "Heath Ledger", "Michael Caine"), LocalDate.of(2008, 7, 18), 2008, 0L));
+        index.index(new MovieInfo("3", "Dark Knight Rises", "", List.of("Christian Bale", "Tom Hardy"), LocalDate.of(2012, 7, 20), 2012, 0L));
+        index.index(new MovieInfo("4", "Inception", "", List.of("Leonardo DiCaprio", "Tom Hardy", "Michael Caine"), LocalDate.of(2010, 7, 16), 2010, 0L));
+    }
+
+    @Test
+    void yearRangeAndCast() {
+        //when
+        var selection = index.select(query(2005, 2010, FacetQuery.Match.ALL, "christian bale"), 0, 10, 10);
+
+        //then
+        assertEquals(2, selection.getTotal());
+        assertEquals(List.of("1", "2"), selection.getMovieIds());
+        assertEquals(Map.of(2005, 1L, 2008, 1L), selection.getYears());
+        assertEquals(2L, selection.getCast().get("Michael Caine"));
+        assertEquals(1L, selection.getCast().get("Heath Ledger"));
+    }
+
+    @Test
+    void castAllAndAny() {
+        assertEquals(List.of("3"), index.select(query(null, null, FacetQuery.Match.ALL, "Christian Bale", "Tom Hardy"), 0, 10, 0).getMovieIds());
+        assertEquals(List.of("1", "2", "3", "4"), index.select(query(null, null, FacetQuery.Match.ANY, "Christian Bale", "Tom Hardy"), 0, 10, 0).getMovieIds());
+        assertEquals(0, index.select(query(null, null, FacetQuery.Match.ALL, "Christian Bale", "Nobody"), 0, 10, 0).getTotal());
+    }
+
+    @Test
+    void castFacetsAreTopMostFrequent() {
+        //when
+        var selection = index.select(query(null, null, FacetQuery.Match.ALL), 0, 0, 2);
+
+        //then
+        assertEquals(4, selection.getTotal());
+        assertEquals(List.of(), selection.getMovieIds());
+        assertEquals(List.of("Christian Bale", "Michael Caine"), List.copyOf(selection.getCast().keySet()));
+    }
+
+    @Test
+    void paging() {
+        var all = query(null, null, FacetQuery.Match.ALL);
+        assertEquals(List.of("2", "3"), index.select(all, 1, 2, 0).getMovieIds());
+        assertEquals(List.of(), index.select(all, 4, 2, 0).getMovieIds());
+    }
+
+    @Test
+    void pagesDoNotShiftWhenAMovieIsAddedAfterARemoval() {
+        //given
+        var all = query(null, null, FacetQuery.Match.ALL);
+        var firstPage = index.select(all, 0, 2, 0).getMovieIds();
+
+        //when
+        index.remove("1");
+        index.index(new MovieInfo("5", "Memento", "", List.of("Guy Pearce"), LocalDate.of(2000, 9, 5), 2000, 0L));
+
+        //then
+        assertEquals(List.of("1", "2"), firstPage);
+        // the new movie is not given the removed movie's ordinal, ahead of pages already served
+        assertEquals(List.of("2", "3", "4", "5"), index.select(all, 0, 10, 0).getMovieIds());
+    }
+
+    @Test
+    void replaceWithSwapsInTheRebuiltContents() {
+        //given
+        var rebuilt = index.newEmpty();
+        rebuilt.index(new MovieInfo("4", "Inception", "", List.of("Leonardo DiCaprio"), LocalDate.of(2010, 7, 16), 2010, 0L));
+
+        //when
+        index.replaceWith(rebuilt);
+
+        //then
+        var selection = index.select(query(null, null, FacetQuery.Match.ALL), 0, 10, 10);
+        assertEquals(List.of("4"), selection.getMovieIds());
+        assertEquals(Map.of("Leonardo DiCaprio", 1L), selection.getCast());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    void updateAndRemoveAreIncremental() {
+        //when
+        index.index(new MovieInfo("3", "Dark Knight Rises", "", List.of("Tom Hardy"), LocalDate.of(2012, 7, 20), 2012, 1L));
+        index.remove("1");
+
+        //then
+        var selection = index.select(query(null, null, FacetQuery.Match.ALL, "Christian Bale"), 0, 10, 10);
+        assertEquals(List.of("2"), selection.getMovieIds());
+        assertEquals(3, index.size());
+
+        //when
+        index.index(new MovieInfo("5", "Memento", "", List.of("Guy Pearce"), LocalDate.of(2000, 9, 5), 2000, 0L));
+
+        //then
+        assertEquals(List.of("5"), index.select(query(2000, 2000, FacetQuery.Match.ALL), 0, 10, 0).getMovieIds());
+    }
+
+    @Test
+    void staleVersionIsIgnored() {
+        //when
+        index.index(new MovieInfo("3", "Dark Knight Rises", "", List.of("Tom Hardy"), LocalDate.of(2012, 7, 20), 2012, 2L));
+        index.index(new MovieInfo("3", "Dark Knight Rises", "", List.of("Christian Bale"), LocalDate.of(2012, 7, 20), 2012, 1L));
+
+        //then
+        assertEquals(List.of("1", "2"), index.select(query(null, null, FacetQuery.Match.ALL, "Christian Bale"), 0, 10, 0).getMovieIds());
+    }
+
+    private FacetQuery query(Integer yearFrom, Integer yearTo, FacetQuery.Match match, String... cast) {
+        return FacetQuery.builder().yearFrom(yearFrom).yearTo(yearTo).cast(List.of(cast)).castMatch(match).build();
+    }
+}
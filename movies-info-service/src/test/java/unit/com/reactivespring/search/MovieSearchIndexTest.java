@@ -0,0 +1,135 @@
+package com.reactivespring.search;
+
+import com.reactivespring.domain.MovieInfo;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MovieSearchIndexTest {
+
+    MovieSearchIndex index = new MovieSearchIndex();
+
+    @BeforeEach
+    void setUp() {
+        index.index(new MovieInfo("1", "Batman Begins", "A young Bruce Wayne", List.of("Christian Bale", "Michael Caine"), LocalDate.of(2005, 6, 15), 2005, 0L));
+        index.index(new MovieInfo("2", "The Dark Knight", "Batman faces the Joker", List.of("Christian Bale", "Heath Ledger"), LocalDate.of(2008, 7, 18), 2008, 0L));
+        index.index(new MovieInfo("3", "Amélie", "A shy waitress in Paris", List.of("Audrey Tautou"), LocalDate.of(2001, 4, 25), 2001, 0L));
+    }
+
+    @Test
+    void searchRanksNameMatchesAboveDescriptionMatches() {
+        //when
+        var hits = index.search("batman", 10);
+
+        //then
+        assertEquals(List.of("1", "2"), movieIds(hits));
+        assertTrue(hits.get(0).getScore() > hits.get(1).getScore());
+    }
+
+    @Test
+    void searchRequiresEveryWordAndExpandsTheLastOne() {
+        assertEquals(List.of("2"), movieIds(index.search("christian knig", 10)));
+        assertEquals(List.of(), movieIds(index.search("christian paris", 10)));
+    }
+
+    @Test
+    void searchIgnoresCaseAndAccents() {
+        assertEquals(List.of("3"), movieIds(index.search("AMELIE", 10)));
+    }
+
+    @Test
+    void suggestCompletesNamesAndCastMostFrequentFirst() {
+        assertEquals(List.of("Christian Bale"), index.suggest("chr", 10));
+        assertEquals(List.of("The Dark Knight"), index.suggest("the d", 10));
+    }
+
+    @Test
+    void updateAndRemoveAreIncremental() {
+        //when
+        index.index(new MovieInfo("2", "The Dark Knight Rises", "Bane", List.of("Tom Hardy"), LocalDate.of(2012, 7, 20), 2012, 1L));
+
+        //then
+        assertEquals(List.of("1"), movieIds(index.search("batman", 10)));
+        assertEquals(List.of("2"), movieIds(index.search("rises", 10)));
+        assertEquals(List.of("Christian Bale"), index.suggest("christian", 10));
+
+        //when
+        index.remove("1");
+
+        //then
+        assertEquals(List.of(), index.suggest("christian", 10));
+        assertEquals(2, index.size());
+    }
+
+    @Test
+    void staleVersionIsIgnored() {
+        //when
+        index.index(new MovieInfo("2", "The Dark Knight Rises", "Bane", List.of("Tom Hardy"), LocalDate.of(2012, 7, 20), 2012, 2L));
+        index.index(new MovieInfo("2", "The Dark Knight", "Batman faces the Joker", List.of("Christian Bale"), LocalDate.of(2008, 7, 18), 2008, 1L));
+
+        //then
+        assertEquals(List.of("2"), movieIds(index.search("rises", 10)));
+    }
+
+    @Test
+    void prefixExpansionKeepsTheTokensInMostMovies() {
+        //given
+        // sixty rare tokens under the same prefix, more than the expansion cap
+        for (int i = 0; i < 60; i++) {
+            index.index(new MovieInfo("rare" + i, "Rare " + i, "qx" + i, List.of(), LocalDate.of(2020, 1, 1), 2020, 0L));
+        }
+        for (int i = 0; i < 3; i++) {
+            index.index(new MovieInfo("common" + i, "Common " + i, "qxcommon", List.of(), LocalDate.of(2020, 1, 1), 2020, 0L));
+        }
+
+        //when
+        var hits = movieIds(index.search("qx", 100));
+
+        //then
+        assertTrue(hits.containsAll(List.of("common0", "common1", "common2")), hits.toString());
+    }
+
+    @Test
+    void finishedWordIsMatchedEvenWhenRarerThanItsExpansions() {
+        //given
+        for (int i = 0; i < 60; i++) {
+            index.index(new MovieInfo("a" + i, "A " + i, "qx" + i, List.of(), LocalDate.of(2020, 1, 1), 2020, 0L));
+            index.index(new MovieInfo("b" + i, "B " + i, "qx" + i, List.of(), LocalDate.of(2020, 1, 1), 2020, 0L));
+        }
+        index.index(new MovieInfo("exact", "Exact", "qx", List.of(), LocalDate.of(2020, 1, 1), 2020, 0L));
+
+        //when
+        var hits = movieIds(index.search("qx", 200));
+
+        //then
+        assertTrue(hits.contains("exact"), hits.toString());
+    }
+
+    @Test
+    void replaceWithSwapsInTheRebuiltContents() {
+        //given
+        var rebuilt = index.newEmpty();
+        rebuilt.index(new MovieInfo("3", "Amélie", "A shy waitress in Paris", List.of("Audrey Tautou"), LocalDate.of(2001, 4, 25), 2001, 0L));
+
+        //when
+        var beforeSwap = movieIds(index.search("batman", 10));
+        index.replaceWith(rebuilt);
+
+        //then
+        assertEquals(List.of("1", "2"), beforeSwap);
+        assertEquals(List.of(), movieIds(index.search("batman", 10)));
+        assertEquals(List.of("3"), movieIds(index.search("paris", 10)));
+        assertEquals(List.of(), index.suggest("chr", 10));
+        assertEquals(1, index.size());
+    }
+
+    private List<String> movieIds(List<SearchHit> hits) {
+        return hits.stream().map(SearchHit::getMovieId).collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,125 @@
+package com.reactivespring.service;
+
+import com.mongodb.client.model.InsertManyOptions;
+import com.mongodb.client.result.InsertManyResult;
+import com.mongodb.reactivestreams.client.MongoCollection;
+import com.reactivespring.cache.MovieInfoCache;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.stream.MovieInfoEventPublisher;
+import org.bson.Document;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.convert.MappingMongoConverter;
+import org.springframework.data.mongodb.core.convert.NoOpDbRefResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.test.util.ReflectionTestUtils;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import javax.validation.Validation;
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class MovieBulkIngestServiceTest {
+
+    public static final int BATCH_SIZE = 5;
+
+    ReactiveMongoTemplate reactiveMongoTemplate = mock(ReactiveMongoTemplate.class);
+
+    @SuppressWarnings("unchecked")
+    MongoCollection<Document> collection = mock(MongoCollection.class);
+
+    List<Integer> insertedBatches = new CopyOnWriteArrayList<>();
+
+    // lines handed to insertMany so far, read ahead is what was read from the body beyond that
+    AtomicInteger linesWritten = new AtomicInteger();
+
+    MovieBulkIngestService movieBulkIngestService;
+
+    @BeforeEach
+    void setUp() {
+        var converter = new MappingMongoConverter(NoOpDbRefResolver.INSTANCE, new MongoMappingContext());
+        converter.afterPropertiesSet();
+        when(reactiveMongoTemplate.getConverter()).thenReturn(converter);
+        when(reactiveMongoTemplate.getCollectionName(MovieInfo.class)).thenReturn("movieInfo");
+        when(reactiveMongoTemplate.getCollection("movieInfo")).thenReturn(Mono.just(collection));
+        movieBulkIngestService = new MovieBulkIngestService(reactiveMongoTemplate,
+                Jackson2ObjectMapperBuilder.json().build(),
+                Validation.buildDefaultValidatorFactory().getValidator(),
+                mock(MovieInfoEventPublisher.class), mock(MovieInfoCache.class));
+        ReflectionTestUtils.setField(movieBulkIngestService, "batchSize", BATCH_SIZE);
+    }
+
+    @Test
+    void batchesAreBoundedBySize() {
+        //given
+        insertsTaking(Duration.ZERO);
+        ReflectionTestUtils.setField(movieBulkIngestService, "batchTimeout", Duration.ofMinutes(1));
+
+        //when
+        var result = movieBulkIngestService.ingest(lines(23));
+
+        //then
+        StepVerifier.create(result)
+                .assertNext(ingested -> {
+                    assertEquals(23, ingested.getReceived());
+                    assertEquals(23, ingested.getInserted());
+                })
+                .verifyComplete();
+        assertEquals(List.of(5, 5, 5, 5, 3), insertedBatches);
+    }
+
+    @Test
+    void slowInsertsNeitherOverflowNorReadAhead() {
+        //given
+        // the timeout closes batches while the previous insert is still running, with no batch requested
+        insertsTaking(Duration.ofMillis(50));
+        ReflectionTestUtils.setField(movieBulkIngestService, "batchTimeout", Duration.ofMillis(5));
+        var linesRead = new AtomicInteger();
+        var maxReadAhead = new AtomicInteger();
+        var lines = lines(100)
+                .delayElements(Duration.ofMillis(2))
+                .doOnNext(line -> maxReadAhead.accumulateAndGet(linesRead.incrementAndGet() - linesWritten.get(), Math::max));
+
+        //when
+        var result = movieBulkIngestService.ingest(lines);
+
+        //then
+        StepVerifier.create(result)
+                .assertNext(ingested -> {
+                    assertEquals(100, ingested.getReceived());
+                    assertEquals(100, ingested.getInserted());
+                    assertEquals(0, ingested.getFailed());
+                })
+                .verifyComplete();
+        // the next batch is read while one is written, plus at most a line racing the handoff between them
+        assertTrue(maxReadAhead.get() <= 2 * BATCH_SIZE, "read ahead " + maxReadAhead.get() + " lines");
+        assertTrue(insertedBatches.size() > 100 / BATCH_SIZE, "batches were not closed by the timeout");
+    }
+
+    private void insertsTaking(Duration duration) {
+        when(collection.insertMany(anyList(), any(InsertManyOptions.class))).thenAnswer(invocation -> {
+            List<Document> documents = invocation.getArgument(0);
+            insertedBatches.add(documents.size());
+            linesWritten.addAndGet(documents.size());
+            return Mono.delay(duration).thenReturn(mock(InsertManyResult.class));
+        });
+    }
+
+    private Flux<String> lines(int count) {
+        return Flux.range(1, count)
+                .map(i -> "{\"name\":\"Movie " + i + "\",\"year\":2020,\"cast\":[\"Actor " + i + "\"],\"releaseDate\":\"2020-01-01\"}");
+    }
+}
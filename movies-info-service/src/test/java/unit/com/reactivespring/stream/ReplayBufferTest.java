@@ -0,0 +1,171 @@
+package com.reactivespring.stream;
+
+import com.reactivespring.domain.MovieInfo;
+import org.junit.jupiter.api.Test;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ReplayBufferTest {
+
+    @Test
+    void subscribeReplaysOnlyEventsAfterSince() {
+        //given
+        var buffer = new ReplayBuffer<String>(8);
+        buffer.append("A");
+        buffer.append("B");
+        buffer.append("C");
+
+        //when
+        var events = buffer.subscribe(1).map(SequencedEvent::getPayload);
+
+        //then
+        StepVerifier.create(events)
+                .expectNext("B", "C")
+                .thenCancel()
+                .verify();
+    }
+
+    @Test
+    void subscriberReceivesLiveEvents() {
+        //given
+        var buffer = new ReplayBuffer<String>(8);
+        buffer.append("A");
+
+        //when
+        var events = buffer.subscribe(buffer.latestSequence()).map(SequencedEvent::getPayload);
+
+        //then
+        StepVerifier.create(events)
+                .expectSubscription()
+                .then(() -> buffer.append("B"))
+                .expectNext("B")
+                .then(() -> buffer.append("C"))
+                .expectNext("C")
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void laggingSubscriberResumesAtOldestBufferedEvent() {
+        //given
+        var buffer = new ReplayBuffer<Integer>(4);
+        for (int i = 1; i <= 10; i++) {
+            buffer.append(i);
+        }
+
+        //when
+        var events = buffer.readAfter(2).map(SequencedEvent::getPayload);
+
+        //then
+        StepVerifier.create(events)
+                .expectNext(7, 8, 9, 10)
+                .verifyComplete();
+    }
+
+    @Test
+    void slowSubscriberIsNotOverflowedByBursts() {
+        //given
+        var buffer = new ReplayBuffer<Integer>(16);
+
+        //when
+        var events = buffer.subscribe(0).map(SequencedEvent::getPayload);
+
+        //then
+        StepVerifier.create(events, 1)
+                .then(() -> {
+                    for (int i = 1; i <= 100; i++) {
+                        buffer.append(i);
+                    }
+                })
+                .expectNext(1)
+                .thenRequest(16)
+                .expectNextCount(16)
+                .thenCancel()
+                .verify(Duration.ofSeconds(5));
+    }
+
+    @Test
+    void ringStaysBoundedPastCapacity() {
+        //given
+        var buffer = new ReplayBuffer<MovieInfo>(1024);
+
+        //when
+        append(buffer, 10 * 1024 + 17);
+
+        //then
+        var latest = 10 * 1024 + 17;
+        assertEquals(latest, buffer.latestSequence());
+        assertEquals(1024, buffer.occupiedSlots());
+        // only the last capacity events are held, oldest first and without gaps
+        var expectedSequence = new AtomicLong(latest - 1024);
+        StepVerifier.create(buffer.readAfter(0))
+                .thenConsumeWhile(event -> event.getSequence() == expectedSequence.incrementAndGet())
+                .verifyComplete();
+        assertEquals(latest, expectedSequence.get());
+        StepVerifier.create(buffer.readAfter(latest - 10))
+                .expectNextCount(10)
+                .verifyComplete();
+    }
+
+    @Test
+    void concurrentAppendsAreAllPublishedInOneOrder() throws InterruptedException {
+        //given
+        var threads = 16;
+        var appendsPerThread = 5_000;
+        var buffer = new ReplayBuffer<Integer>(threads * appendsPerThread);
+        var executor = Executors.newFixedThreadPool(threads);
+        var start = new CountDownLatch(1);
+        var done = new CountDownLatch(threads);
+
+        //when
+        for (int t = 0; t < threads; t++) {
+            var thread = t;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    for (int i = 0; i < appendsPerThread; i++) {
+                        buffer.append(thread * appendsPerThread + i);
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        start.countDown();
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+
+        //then
+        // the tail of a contended drain may still be written on the handoff scheduler
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (buffer.latestSequence() < threads * appendsPerThread && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(threads * appendsPerThread, buffer.latestSequence());
+        assertEquals(0, buffer.pending());
+        assertEquals(0, buffer.emitFailures());
+        var events = buffer.readAfter(0).collectList().block();
+        var expectedSequence = new AtomicLong();
+        assertTrue(events.stream().allMatch(event -> event.getSequence() == expectedSequence.incrementAndGet()));
+        assertEquals(threads * appendsPerThread, events.stream().map(SequencedEvent::getPayload).distinct().count());
+    }
+
+    private void append(ReplayBuffer<MovieInfo> buffer, int count) {
+        for (int i = 0; i < count; i++) {
+            buffer.append(new MovieInfo(String.valueOf(i), "Movie " + i, "Description " + i,
+                    List.of("Actor 1", "Actor 2"), LocalDate.of(2020, 1, 1), 2020));
+        }
+    }
+}
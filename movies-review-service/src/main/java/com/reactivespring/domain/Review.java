@@ -5,6 +5,7 @@ import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.NonNull;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.index.CompoundIndex;
 import org.springframework.data.mongodb.core.mapping.Document;
 
 import javax.validation.constraints.Min;
@@ -14,6 +15,10 @@ import javax.validation.constraints.NotBlank;
 @NoArgsConstructor
 @AllArgsConstructor
 @Document
+// top rated reviews of a movie, ties in reviewId order
+@CompoundIndex(name = "movieId_rating_reviewId", def = "{'movieId': 1, 'rating': -1, '_id': 1}")
+// newest reviews of a movie, generated ObjectIds grow with insertion time
+@CompoundIndex(name = "movieId_reviewId", def = "{'movieId': 1, '_id': -1}")
 public class Review {
 
     @Id
@@ -0,0 +1,41 @@
+package com.reactivespring.domain;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Rating aggregates of one movie's reviews. Reviews without a rating are not counted. The histogram maps each
+ * whole rating to the number of reviews whose rating rounds down to it.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+@Document("reviewStats")
+public class ReviewStats {
+
+    @Id
+    private String movieId;
+    private long count;
+    private double sum;
+    private Double min;
+    private Double max;
+    private Map<String, Long> histogram = new TreeMap<>();
+
+    public ReviewStats(String movieId) {
+        this.movieId = movieId;
+    }
+
+    public Double getAverage() {
+        return count > 0 ? sum / count : null;
+    }
+
+    public static String bucket(double rating) {
+        return String.valueOf((long) Math.floor(rating));
+    }
+}
@@ -3,15 +3,21 @@ package com.reactivespring.handler;
 import com.reactivespring.domain.Review;
 import com.reactivespring.exception.ReviewDataException;
 import com.reactivespring.exception.ReviewNotFoundException;
+import com.reactivespring.instrumentation.ReactiveInstrumentation;
+import com.reactivespring.paging.KeysetPaging;
 import com.reactivespring.repository.ReviewReactiveRepository;
+import com.reactivespring.service.ReviewStatsService;
+import com.reactivespring.stream.ReviewBroadcaster;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.server.ServerRequest;
 import org.springframework.web.reactive.function.server.ServerResponse;
+import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.Sinks;
 
 import javax.validation.ConstraintViolation;
 import javax.validation.Validator;
@@ -24,12 +30,25 @@ public class ReviewHandler {
 
     private ReviewReactiveRepository reviewReactiveRepository;
     private Validator validator;
-    private Sinks.Many<Review> reviewSink = Sinks.many().replay().latest();
+    private ReactiveInstrumentation instrumentation;
+    private ReviewStatsService reviewStatsService;
+    private ReviewBroadcaster reviewBroadcaster;
 
+    @Value("${reviews.query.defaultPageSize:100}")
+    private int defaultPageSize = 100;
 
-    public ReviewHandler(ReviewReactiveRepository reviewReactiveRepository, Validator validator) {
+    @Value("${reviews.query.maxPageSize:1000}")
+    private int maxPageSize = 1000;
+
+
+    public ReviewHandler(ReviewReactiveRepository reviewReactiveRepository, Validator validator,
+                         ReactiveInstrumentation instrumentation, ReviewStatsService reviewStatsService,
+                         ReviewBroadcaster reviewBroadcaster) {
         this.reviewReactiveRepository = reviewReactiveRepository;
         this.validator = validator;
+        this.instrumentation = instrumentation;
+        this.reviewStatsService = reviewStatsService;
+        this.reviewBroadcaster = reviewBroadcaster;
     }
 
 
@@ -37,8 +56,9 @@ public class ReviewHandler {
         return request.bodyToMono(Review.class)
                 .doOnNext(this::validate)
                 .flatMap(reviewReactiveRepository::save)
+                .flatMap(review -> reviewStatsService.reviewAdded(review).thenReturn(review))
                 .doOnNext(review -> {
-                    reviewSink.tryEmitNext(review);
+                    reviewBroadcaster.publish(review);
                 })
                 .flatMap(savedReview -> ServerResponse.status(HttpStatus.CREATED).bodyValue(savedReview));
     }
@@ -55,42 +75,87 @@ public class ReviewHandler {
     public Mono<ServerResponse> getAllReviews(ServerRequest request) {
         Optional<String> movieId = request.queryParam("movieId");
         if (movieId.isPresent()) {
-            var reviewsFlux = reviewReactiveRepository.findReviewsByMovieId(movieId.get());
+            var sort = request.queryParam("sort");
+            var limit = request.queryParam("limit");
+            var reviewsFlux = sort.isEmpty() && limit.isEmpty()
+                    ? reviewReactiveRepository.findReviewsByMovieId(movieId.get())
+                    : sortedReviews(movieId.get(), sort.orElse("newest"), pageSize(limit));
             return ServerResponse
                     .ok()
                     .body(reviewsFlux, Review.class)
                     .switchIfEmpty(ServerResponse.notFound().build());
         } else {
-            return ServerResponse
-                    .ok()
-                    .body(reviewReactiveRepository.findAll(), Review.class)
-                    .switchIfEmpty(ServerResponse.notFound().build());
+            var after = request.queryParam("after").orElse(null);
+            var pageSize = pageSize(request.queryParam("limit"));
+            return reviewReactiveRepository.findPage(after, pageSize)
+                    .transform(instrumentation.flux("reviews.getAll"))
+                    .collectList()
+                    .flatMap(page -> ServerResponse.ok()
+                            .headers(headers -> headers.addAll(KeysetPaging.nextPageHeaders("/v1/reviews", page, pageSize, Review::getReviewId)))
+                            .bodyValue(page));
+        }
+
+    }
+
+    private Flux<Review> sortedReviews(String movieId, String sort, int limit) {
+        // both orders are served by a (movieId, ...) compound index, only the first page is read
+        var pageable = PageRequest.of(0, limit);
+        switch (sort) {
+            case "rating":
+                return reviewReactiveRepository.findByMovieIdOrderByRatingDescReviewIdAsc(movieId, pageable);
+            case "newest":
+                return reviewReactiveRepository.findByMovieIdOrderByReviewIdDesc(movieId, pageable);
+            default:
+                throw new ReviewDataException("sort.invalid : sort must be one of rating, newest");
+        }
+    }
+
+    private int pageSize(Optional<String> limit) {
+        if (limit.isEmpty()) {
+            return defaultPageSize;
+        }
+        try {
+            return Math.max(1, Math.min(Integer.parseInt(limit.get()), maxPageSize));
+        } catch (NumberFormatException e) {
+            throw new ReviewDataException("limit.invalid : limit must be a number");
         }
+    }
+
+    public Mono<ServerResponse> getReviewStats(ServerRequest request) {
+        var movieId = request.queryParam("movieId")
+                .filter(id -> !id.isBlank())
+                .orElseThrow(() -> new ReviewDataException("movieId.blank : movieId must be provided"));
+        return reviewStatsService.getStats(movieId)
+                .transform(instrumentation.mono("reviews.stats"))
+                .flatMap(stats -> ServerResponse.ok().bodyValue(stats));
+    }
 
+    public Mono<ServerResponse> exportReviews(ServerRequest request) {
+        // the whole collection, one review per line, paced by the client's demand
+        return ServerResponse.ok().contentType(MediaType.APPLICATION_NDJSON)
+                .body(reviewReactiveRepository.streamAll().transform(instrumentation.flux("reviews.export")), Review.class);
     }
 
     public Mono<ServerResponse> updateReview(ServerRequest request) {
         var id = request.pathVariable("id");
-        var existingReview = reviewReactiveRepository.findById(id);
-                //.switchIfEmpty(Mono.error(new ReviewNotFoundException("Review not found with id: " + id)));
-        return existingReview
-                .flatMap(review -> request.bodyToMono(Review.class)
-                        .map(newReview -> {
-                            review.setComment(newReview.getComment());
-                            review.setRating(newReview.getRating());
-                            return review;
+        return request.bodyToMono(Review.class)
+                // the write itself returns the rating it replaced, so concurrent updates each see their own predecessor
+                .flatMap(newReview -> reviewReactiveRepository.updateCommentAndRating(id, newReview.getComment(), newReview.getRating())
+                        .flatMap(previous -> {
+                            var updatedReview = new Review(previous.getReviewId(), previous.getMovieId(),
+                                    newReview.getComment(), newReview.getRating());
+                            return reviewStatsService.reviewUpdated(updatedReview, previous.getRating())
+                                    .thenReturn(updatedReview);
                         }))
-                .flatMap(reviewReactiveRepository::save)
                 .flatMap(updatedReview -> ServerResponse.ok().bodyValue(updatedReview))
                 .switchIfEmpty(ServerResponse.notFound().build());
     }
 
     public Mono<ServerResponse> deleteReview(ServerRequest request) {
         var id = request.pathVariable("id");
-        var existingReview = reviewReactiveRepository.findById(id);
-
-        return existingReview
-                .flatMap(review -> reviewReactiveRepository.deleteById(id)
+        // only the request that actually removed the review takes its rating out of the stats
+        return reviewReactiveRepository.removeById(id)
+                .flatMap(review -> reviewStatsService.reviewRemoved(review)
                         .then(ServerResponse.noContent().build()))
                 .switchIfEmpty(ServerResponse.notFound().build());
 
@@ -98,7 +163,7 @@ public class ReviewHandler {
 
     public Mono<ServerResponse> getReviewsStream(ServerRequest request) {
         return ServerResponse.ok().contentType(MediaType.APPLICATION_NDJSON)
-                .body(reviewSink.asFlux(),Review.class)
-                .log();
+                .body(reviewBroadcaster.subscribe(request.queryParam("movieId").orElse(null))
+                        .transform(instrumentation.flux("reviews.stream")), Review.class);
     }
 }
@@ -0,0 +1,40 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.ContextRefreshedEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.index.MongoPersistentEntityIndexResolver;
+import org.springframework.data.mongodb.core.mapping.MongoMappingContext;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+
+/**
+ * Builds the two per-movie {@link Review} indexes, by rating and by newest first, on startup. Without them
+ * every review page of a movie sorts the whole collection in memory.
+ */
+@Component
+@Slf4j
+public class ReviewIndexInitializer {
+
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    private MongoMappingContext mongoMappingContext;
+
+    public ReviewIndexInitializer(ReactiveMongoTemplate reactiveMongoTemplate, MongoMappingContext mongoMappingContext) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+        this.mongoMappingContext = mongoMappingContext;
+    }
+
+    @EventListener(ContextRefreshedEvent.class)
+    public void ensureIndexes() {
+        var resolver = new MongoPersistentEntityIndexResolver(mongoMappingContext);
+        var indexOps = reactiveMongoTemplate.indexOps(Review.class);
+        Flux.fromIterable(resolver.resolveIndexFor(Review.class))
+                .concatMap(indexOps::ensureIndex)
+                .doOnNext(indexName -> log.info("Ensured Review index : {}", indexName))
+                // blocking on purpose, queries must not run before their indexes exist
+                .blockLast();
+    }
+}
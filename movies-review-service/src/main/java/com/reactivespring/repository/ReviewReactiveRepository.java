@@ -1,10 +1,15 @@
 package com.reactivespring.repository;
 
 import com.reactivespring.domain.Review;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
 import reactor.core.publisher.Flux;
 
 
-public interface ReviewReactiveRepository extends ReactiveMongoRepository<Review, String> {
+public interface ReviewReactiveRepository extends ReactiveMongoRepository<Review, String>, ReviewReactiveRepositoryCustom {
     Flux<Review> findReviewsByMovieId(String movieInfoId);
+
+    Flux<Review> findByMovieIdOrderByRatingDescReviewIdAsc(String movieId, Pageable pageable);
+
+    Flux<Review> findByMovieIdOrderByReviewIdDesc(String movieId, Pageable pageable);
 }
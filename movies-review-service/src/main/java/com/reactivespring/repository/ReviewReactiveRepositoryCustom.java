@@ -0,0 +1,28 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public interface ReviewReactiveRepositoryCustom {
+
+    /**
+     * Up to {@code limit} reviews whose id sorts after {@code after} (from the start when null), in reviewId order.
+     */
+    Flux<Review> findPage(String after, int limit);
+
+    /**
+     * Every review in reviewId order, read one cursor batch per demand.
+     */
+    Flux<Review> streamAll();
+
+    /**
+     * Sets comment and rating in one atomic write, emitting the review as it was before, or empty if there is none.
+     */
+    Mono<Review> updateCommentAndRating(String reviewId, String comment, Double rating);
+
+    /**
+     * Removes the review in one atomic write, emitting it, or empty if there was none.
+     */
+    Mono<Review> removeById(String reviewId);
+}
@@ -0,0 +1,60 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.paging.KeysetPaging;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+public class ReviewReactiveRepositoryCustomImpl implements ReviewReactiveRepositoryCustom {
+
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Value("${reviews.query.cursorBatchSize:500}")
+    private int cursorBatchSize = 500;
+
+    public ReviewReactiveRepositoryCustomImpl(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    @Override
+    public Flux<Review> findPage(String after, int limit) {
+        var query = new Query()
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .limit(limit)
+                .cursorBatchSize(Math.min(limit, cursorBatchSize));
+        if (after != null) {
+            query.addCriteria(KeysetPaging.afterId(after));
+        }
+        return reactiveMongoTemplate.find(query, Review.class);
+    }
+
+    @Override
+    public Flux<Review> streamAll() {
+        // the driver asks for the next batch only when the subscriber has demand, so a slow client holds the cursor
+        var query = new Query()
+                .with(Sort.by(Sort.Direction.ASC, "_id"))
+                .cursorBatchSize(cursorBatchSize);
+        return reactiveMongoTemplate.find(query, Review.class);
+    }
+
+    @Override
+    public Mono<Review> updateCommentAndRating(String reviewId, String comment, Double rating) {
+        var update = new Update()
+                .set("comment", comment)
+                .set("rating", rating);
+        var options = FindAndModifyOptions.options().returnNew(false);
+        return reactiveMongoTemplate.findAndModify(new Query(Criteria.where("_id").is(reviewId)), update, options, Review.class);
+    }
+
+    @Override
+    public Mono<Review> removeById(String reviewId) {
+        return reactiveMongoTemplate.findAndRemove(new Query(Criteria.where("_id").is(reviewId)), Review.class);
+    }
+}
@@ -17,6 +17,8 @@ public class ReviewRouter {
                 .nest(path("v1/reviews"),builder -> {
                     builder.POST("", request -> reviewHandler.addReview(request))
                             .GET("", request -> reviewHandler.getAllReviews(request))
+                            .GET("/export", request -> reviewHandler.exportReviews(request))
+                            .GET("/stats", request -> reviewHandler.getReviewStats(request))
                             .PUT("{id}", request -> reviewHandler.updateReview(request))
                             .DELETE("{id}", request -> reviewHandler.deleteReview(request))
                             .GET("/stream", request -> reviewHandler.getReviewsStream(request));
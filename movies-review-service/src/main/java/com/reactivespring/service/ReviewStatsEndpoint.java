@@ -0,0 +1,29 @@
+package com.reactivespring.service;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+
+/**
+ * Manual trigger for the full stats rebuild, for operators repairing drift: {@code POST /actuator/reviewStats}.
+ * Kept off the public API because the rebuild rewrites the whole stats collection.
+ */
+@Component
+@Endpoint(id = "reviewStats")
+public class ReviewStatsEndpoint {
+
+    private ReviewStatsService reviewStatsService;
+
+    public ReviewStatsEndpoint(ReviewStatsService reviewStatsService) {
+        this.reviewStatsService = reviewStatsService;
+    }
+
+    @WriteOperation
+    public Mono<Map<String, Object>> rebuild() {
+        return reviewStatsService.rebuild()
+                .map(movies -> Map.of("movies", movies));
+    }
+}
@@ -0,0 +1,28 @@
+package com.reactivespring.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Mono;
+
+/**
+ * Periodic full rebuild of the review stats, off unless {@code reviews.stats.rebuildCron} is set.
+ */
+@Component
+@Slf4j
+public class ReviewStatsRebuildJob {
+
+    private ReviewStatsService reviewStatsService;
+
+    public ReviewStatsRebuildJob(ReviewStatsService reviewStatsService) {
+        this.reviewStatsService = reviewStatsService;
+    }
+
+    @Scheduled(cron = "${reviews.stats.rebuildCron:-}")
+    public void rebuild() {
+        reviewStatsService.rebuild()
+                .doOnError(ex -> log.error("Review stats rebuild failed : {}", ex.getMessage(), ex))
+                .onErrorResume(ex -> Mono.empty())
+                .block();
+    }
+}
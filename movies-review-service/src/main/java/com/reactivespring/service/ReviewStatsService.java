@@ -0,0 +1,150 @@
+package com.reactivespring.service;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewStats;
+import lombok.extern.slf4j.Slf4j;
+import org.bson.Document;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps one {@link ReviewStats} document per movie in step with its reviews. Every change is a single atomic
+ * update of that document, so concurrent reviews of the same movie never lose each other's counts.
+ */
+@Service
+@Slf4j
+public class ReviewStatsService {
+
+    private ReactiveMongoTemplate reactiveMongoTemplate;
+
+    public ReviewStatsService(ReactiveMongoTemplate reactiveMongoTemplate) {
+        this.reactiveMongoTemplate = reactiveMongoTemplate;
+    }
+
+    public Mono<ReviewStats> getStats(String movieId) {
+        return reactiveMongoTemplate.findById(movieId, ReviewStats.class)
+                .defaultIfEmpty(new ReviewStats(movieId));
+    }
+
+    public Mono<Void> reviewAdded(Review review) {
+        return ratingChanged(review.getMovieId(), null, review.getRating());
+    }
+
+    public Mono<Void> reviewUpdated(Review review, Double previousRating) {
+        return ratingChanged(review.getMovieId(), previousRating, review.getRating());
+    }
+
+    public Mono<Void> reviewRemoved(Review review) {
+        return ratingChanged(review.getMovieId(), review.getRating(), null);
+    }
+
+    /**
+     * Moves one rating of the movie from {@code removed} to {@code added}, either of which may be null.
+     */
+    Mono<Void> ratingChanged(String movieId, Double removed, Double added) {
+        if (movieId == null || (removed == null && added == null)) {
+            return Mono.empty();
+        }
+        var histogram = new HashMap<String, Long>();
+        var update = new Update();
+        long count = 0;
+        double sum = 0;
+        if (added != null) {
+            count++;
+            sum += added;
+            histogram.merge(ReviewStats.bucket(added), 1L, Long::sum);
+            update.min("min", added).max("max", added);
+        }
+        if (removed != null) {
+            count--;
+            sum -= removed;
+            histogram.merge(ReviewStats.bucket(removed), -1L, Long::sum);
+        }
+        if (count != 0) {
+            update.inc("count", count);
+        }
+        if (sum != 0) {
+            update.inc("sum", sum);
+        }
+        histogram.forEach((bucket, delta) -> {
+            if (delta != 0) {
+                update.inc("histogram." + bucket, delta);
+            }
+        });
+        if (update.getUpdateObject().isEmpty()) {
+            return Mono.empty();
+        }
+        var options = FindAndModifyOptions.options().returnNew(true).upsert(added != null);
+        return reactiveMongoTemplate.findAndModify(byMovieId(movieId), update, options, ReviewStats.class)
+                // two first reviews of a movie racing to upsert its document, the loser retries as an update
+                .retryWhen(Retry.max(1).filter(DuplicateKeyException.class::isInstance))
+                .flatMap(stats -> {
+                    // $min and $max cannot be undone, losing an extreme needs a look at the remaining reviews
+                    if (removed != null && (removed.equals(stats.getMin()) || removed.equals(stats.getMax()))) {
+                        return recomputeExtremes(movieId);
+                    }
+                    return Mono.empty();
+                })
+                .then();
+    }
+
+    private Mono<Void> recomputeExtremes(String movieId) {
+        var pipeline = List.of(
+                new Document("$match", new Document("movieId", movieId).append("rating", new Document("$ne", null))),
+                new Document("$group", new Document("_id", null)
+                        .append("min", new Document("$min", "$rating"))
+                        .append("max", new Document("$max", "$rating"))));
+        return reactiveMongoTemplate.getCollection(reactiveMongoTemplate.getCollectionName(Review.class))
+                .flatMap(collection -> Mono.from(collection.aggregate(pipeline).first()))
+                .map(extremes -> new Update().set("min", extremes.get("min")).set("max", extremes.get("max")))
+                .defaultIfEmpty(new Update().unset("min").unset("max"))
+                .flatMap(update -> reactiveMongoTemplate.updateFirst(byMovieId(movieId), update, ReviewStats.class))
+                .then();
+    }
+
+    /**
+     * Recomputes every movie's stats from the review collection in one aggregation whose $out replaces the
+     * stats collection when it completes. Incremental updates made while it runs are overwritten, so it is
+     * meant for repairing drift rather than for running under write load. Emits the number of movies.
+     */
+    public Mono<Long> rebuild() {
+        var reviews = reactiveMongoTemplate.getCollectionName(Review.class);
+        var stats = reactiveMongoTemplate.getCollectionName(ReviewStats.class);
+        var pipeline = List.of(
+                new Document("$match", new Document("rating", new Document("$ne", null))),
+                // one group per movie and whole rating first, for the histogram
+                new Document("$group", new Document("_id", new Document("movieId", "$movieId")
+                        .append("bucket", new Document("$toString", new Document("$toLong", new Document("$floor", "$rating")))))
+                        .append("count", new Document("$sum", 1L))
+                        .append("sum", new Document("$sum", "$rating"))
+                        .append("min", new Document("$min", "$rating"))
+                        .append("max", new Document("$max", "$rating"))),
+                new Document("$group", new Document("_id", "$_id.movieId")
+                        .append("count", new Document("$sum", "$count"))
+                        .append("sum", new Document("$sum", "$sum"))
+                        .append("min", new Document("$min", "$min"))
+                        .append("max", new Document("$max", "$max"))
+                        .append("histogram", new Document("$push", new Document("k", "$_id.bucket").append("v", "$count")))),
+                new Document("$addFields", new Document("histogram", new Document("$arrayToObject", "$histogram"))),
+                new Document("$out", stats));
+        return reactiveMongoTemplate.getCollection(reviews)
+                .flatMap(collection -> Mono.from(collection.aggregate(pipeline).toCollection()))
+                .then(reactiveMongoTemplate.count(new Query(), ReviewStats.class))
+                .doOnNext(movies -> log.info("Review stats rebuilt for {} movies", movies));
+    }
+
+    private static Query byMovieId(String movieId) {
+        return new Query(Criteria.where("_id").is(movieId));
+    }
+}
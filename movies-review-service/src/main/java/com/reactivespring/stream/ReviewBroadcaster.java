@@ -0,0 +1,105 @@
+package com.reactivespring.stream;
+
+import com.reactivespring.domain.Review;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.Exceptions;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Fans new reviews out to /stream subscribers. The sink never waits for a subscriber: each one drains its own
+ * bounded buffer, and when that buffer is full either its oldest review is dropped ({@code drop-oldest}) or the
+ * subscriber is disconnected ({@code disconnect}). A slow client therefore only ever loses its own events.
+ */
+@Component
+@Slf4j
+public class ReviewBroadcaster {
+
+    private final Sinks.Many<Review> sink = Sinks.many().multicast().directBestEffort();
+
+    // reviews are saved on whichever event loop completed the write, the sink must only be called by one at a time
+    private final SerializedEmitter<Review> emitter;
+
+    private final AtomicLong connectionIds = new AtomicLong();
+
+    private final AtomicInteger connections = new AtomicInteger();
+
+    private MeterRegistry meterRegistry;
+
+    private int bufferSize;
+
+    private BufferOverflowStrategy overflowStrategy;
+
+    public ReviewBroadcaster(ObjectProvider<MeterRegistry> meterRegistry,
+                             @Value("${reviews.stream.bufferSize:256}") int bufferSize,
+                             @Value("${reviews.stream.overflow:drop-oldest}") String overflow) {
+        this.meterRegistry = meterRegistry.getIfAvailable(() -> Metrics.globalRegistry);
+        this.bufferSize = bufferSize;
+        this.overflowStrategy = overflowStrategy(overflow);
+        this.emitter = SerializedEmitter.of(sink, "reviews.stream", this.meterRegistry);
+        Gauge.builder("reviews.stream.connections", connections, AtomicInteger::get)
+                .register(this.meterRegistry);
+    }
+
+    public void publish(Review review) {
+        emitter.emit(review);
+    }
+
+    /**
+     * New reviews, only those of {@code movieId} when it is not null.
+     */
+    public Flux<Review> subscribe(String movieId) {
+        return Flux.defer(() -> {
+            var connection = String.valueOf(connectionIds.incrementAndGet());
+            var depth = new AtomicInteger();
+            var depthGauge = Gauge.builder("reviews.stream.buffer.depth", depth, AtomicInteger::get)
+                    .tag("connection", connection)
+                    .register(meterRegistry);
+            var dropped = Counter.builder("reviews.stream.dropped")
+                    .tag("connection", connection)
+                    .register(meterRegistry);
+            connections.incrementAndGet();
+            return sink.asFlux()
+                    .filter(review -> movieId == null || movieId.equals(review.getMovieId()))
+                    .doOnNext(review -> depth.incrementAndGet())
+                    .onBackpressureBuffer(bufferSize, review -> {
+                        depth.decrementAndGet();
+                        dropped.increment();
+                    }, overflowStrategy)
+                    .doOnNext(review -> depth.decrementAndGet())
+                    .doOnError(ex -> {
+                        if (Exceptions.isOverflow(ex)) {
+                            log.info("Disconnecting review stream {}, {} reviews behind", connection, bufferSize);
+                        }
+                    })
+                    .doFinally(signalType -> {
+                        connections.decrementAndGet();
+                        // per connection meters go away with the connection
+                        meterRegistry.remove(depthGauge);
+                        meterRegistry.remove(dropped);
+                    });
+        });
+    }
+
+    private static BufferOverflowStrategy overflowStrategy(String overflow) {
+        switch (overflow) {
+            case "drop-oldest":
+                return BufferOverflowStrategy.DROP_OLDEST;
+            case "disconnect":
+                return BufferOverflowStrategy.ERROR;
+            default:
+                throw new IllegalArgumentException("reviews.stream.overflow must be drop-oldest or disconnect, was " + overflow);
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package com.reactivespring.repository;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.test.FindCommands;
+import org.bson.BsonDocument;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.data.mongo.DataMongoTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+
+@DataMongoTest
+@ActiveProfiles("test")
+@Import({ReviewIndexInitializer.class, FindCommands.class})
+class ReviewRepositoryQueryPlanIntgTest {
+
+    @Autowired
+    ReviewReactiveRepository reviewReactiveRepository;
+
+    @Autowired
+    ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Autowired
+    FindCommands findCommands;
+
+    @BeforeEach
+    void setUp() {
+        var reviewList = List.of(
+                new Review(null, "123", "Great movie!", 5.0),
+                new Review(null, "123", "Must watch!", 4.5),
+                new Review(null, "123", "Not bad", 3.0),
+                new Review(null, "123", "Also great", 5.0),
+                new Review(null, "789", "Other movie", 1.0));
+        reviewReactiveRepository.saveAll(reviewList).blockLast();
+        findCommands.clear();
+    }
+
+    @AfterEach
+    void tearDown() {
+        reviewReactiveRepository.deleteAll().block();
+    }
+
+    @Test
+    void topRatedByMovieId() {
+        StepVerifier.create(reviewReactiveRepository.findByMovieIdOrderByRatingDescReviewIdAsc("123", PageRequest.of(0, 3)))
+                .expectNextMatches(review -> review.getComment().equals("Great movie!"))
+                .expectNextMatches(review -> review.getComment().equals("Also great"))
+                .expectNextMatches(review -> review.getComment().equals("Must watch!"))
+                .verifyComplete();
+
+        assertIndexedWithoutSort();
+    }
+
+    @Test
+    void newestByMovieId() {
+        StepVerifier.create(reviewReactiveRepository.findByMovieIdOrderByReviewIdDesc("123", PageRequest.of(0, 2)))
+                .expectNextMatches(review -> review.getComment().equals("Also great"))
+                .expectNextMatches(review -> review.getComment().equals("Not bad"))
+                .verifyComplete();
+
+        assertIndexedWithoutSort();
+    }
+
+    @Test
+    void findReviewsByMovieIdUsesIndex() {
+        StepVerifier.create(reviewReactiveRepository.findReviewsByMovieId("123"))
+                .expectNextCount(4)
+                .verifyComplete();
+
+        assertIndexedWithoutSort();
+    }
+
+    // explains the last find command the derived query sent, not a hand-written copy of it
+    private void assertIndexedWithoutSort() {
+        var find = findCommands.last(reactiveMongoTemplate.getCollectionName(Review.class));
+        assertNotNull(find, "no find command was sent");
+        var explain = new BsonDocument("explain", find).append("verbosity", new BsonString("queryPlanner"));
+        var plan = reactiveMongoTemplate.getMongoDatabase()
+                .flatMap(database -> Mono.from(database.runCommand(explain)))
+                .block();
+        var winningPlan = plan.get("queryPlanner", Document.class).get("winningPlan", Document.class).toJson();
+        assertFalse(winningPlan.contains("COLLSCAN"), "collection scan for " + find.toJson() + " : " + winningPlan);
+        // the index delivers the order, there is no blocking in-memory sort
+        assertFalse(winningPlan.contains("\"SORT\""), "in-memory sort for " + find.toJson() + " : " + winningPlan);
+    }
+}
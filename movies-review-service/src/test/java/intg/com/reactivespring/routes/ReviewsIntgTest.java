@@ -8,11 +8,16 @@ import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.MediaType;
 import org.springframework.test.context.ActiveProfiles;
 import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.test.StepVerifier;
 
 import java.util.List;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+
 @SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
 @ActiveProfiles("test")
 @AutoConfigureWebTestClient
@@ -148,4 +153,54 @@ public class ReviewsIntgTest {
                 });
     }
 
+    @Test
+    void getAllReviewsPageByPage() {
+        //when
+        var firstPage = webTestClient
+                .get()
+                .uri(REVIEWS_URI + "?limit=2")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(Review.class)
+                .hasSize(2)
+                .returnResult();
+        var continuationToken = firstPage.getResponseHeaders().getFirst("X-Continuation-Token");
+
+        //then
+        // the client supplied string id sorts before the generated ObjectIds
+        assertEquals("456", firstPage.getResponseBody().get(0).getReviewId());
+        assertEquals(firstPage.getResponseBody().get(1).getReviewId(), continuationToken);
+        webTestClient
+                .get()
+                .uri(REVIEWS_URI + "?after={after}&limit=2", continuationToken)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .doesNotExist("X-Continuation-Token")
+                .expectBodyList(Review.class)
+                .hasSize(1)
+                .consumeWith(result -> assertNotEquals(continuationToken, result.getResponseBody().get(0).getReviewId()));
+    }
+
+    @Test
+    void exportReviews() {
+        //when
+        var reviews = webTestClient
+                .get()
+                .uri(REVIEWS_URI + "/export")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(Review.class)
+                .getResponseBody();
+
+        //then
+        StepVerifier.create(reviews)
+                .expectNextMatches(review -> review.getReviewId().equals("456"))
+                .expectNextCount(2)
+                .verifyComplete();
+    }
 }
@@ -0,0 +1,216 @@
+package com.reactivespring.service;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewStats;
+import com.reactivespring.repository.ReviewReactiveRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+public class ReviewStatsIntgTest {
+
+    public static final String REVIEWS_URI = "/v1/reviews";
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Autowired
+    ReviewReactiveRepository reviewReactiveRepository;
+
+    @Autowired
+    ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Autowired
+    ReviewStatsService reviewStatsService;
+
+    @Autowired
+    ReviewStatsEndpoint reviewStatsEndpoint;
+
+    @AfterEach
+    void tearDown() {
+        reviewReactiveRepository.deleteAll().block();
+        reactiveMongoTemplate.dropCollection(ReviewStats.class).block();
+    }
+
+    @Test
+    void statsFollowAddUpdateAndDelete() {
+        //given
+        var first = add(new Review(null, "123", "Great movie!", 5.0));
+        var second = add(new Review(null, "123", "Must watch!", 4.5));
+        add(new Review(null, "123", "Not bad", 3.0));
+        add(new Review(null, "789", "Other movie", 1.0));
+
+        //then
+        var stats = stats("123");
+        assertEquals(3, stats.getCount());
+        assertEquals(12.5, stats.getSum());
+        assertEquals(3.0, stats.getMin());
+        assertEquals(5.0, stats.getMax());
+        assertEquals(Map.of("3", 1L, "4", 1L, "5", 1L), stats.getHistogram());
+
+        //when
+        webTestClient.put()
+                .uri(REVIEWS_URI + "/{id}", second.getReviewId())
+                .bodyValue(new Review(null, "123", "Changed my mind", 2.0))
+                .exchange()
+                .expectStatus()
+                .isOk();
+        webTestClient.delete()
+                .uri(REVIEWS_URI + "/{id}", first.getReviewId())
+                .exchange()
+                .expectStatus()
+                .isNoContent();
+
+        //then
+        stats = stats("123");
+        assertEquals(2, stats.getCount());
+        assertEquals(5.0, stats.getSum());
+        assertEquals(2.0, stats.getMin());
+        // the previous maximum was deleted
+        assertEquals(3.0, stats.getMax());
+        assertEquals(Map.of("2", 1L, "3", 1L, "4", 0L, "5", 0L), stats.getHistogram());
+        assertEquals(1, stats("789").getCount());
+    }
+
+    @Test
+    void concurrentUpdatesOfOneReviewKeepStatsConsistent() {
+        //given
+        var review = add(new Review(null, "123", "Great movie!", 5.0));
+        var ratings = List.of(1.0, 2.0, 3.0, 4.0, 1.5, 2.5, 3.5, 4.5);
+
+        //when
+        var webClient = WebClient.create("http://localhost:" + port);
+        Flux.fromIterable(ratings)
+                .flatMap(rating -> webClient.put()
+                        .uri(REVIEWS_URI + "/{id}", review.getReviewId())
+                        .bodyValue(new Review(null, "123", "Rated " + rating, rating))
+                        .retrieve()
+                        .toBodilessEntity(), ratings.size())
+                .blockLast(Duration.ofSeconds(30));
+
+        //then
+        // whichever update landed last, the stats describe exactly one review with exactly that rating
+        var stored = reviewReactiveRepository.findById(review.getReviewId()).block();
+        var stats = stats("123");
+        assertEquals(1, stats.getCount());
+        assertEquals(stored.getRating(), stats.getSum());
+        assertEquals(1L, stats.getHistogram().get(ReviewStats.bucket(stored.getRating())));
+        assertEquals(1L, stats.getHistogram().values().stream().mapToLong(Long::longValue).sum());
+        assertTrue(stats.getHistogram().values().stream().allMatch(count -> count >= 0));
+    }
+
+    @Test
+    void concurrentDeletesOfOneReviewRemoveItOnce() {
+        //given
+        var review = add(new Review(null, "123", "Great movie!", 5.0));
+        add(new Review(null, "123", "Not bad", 3.0));
+
+        //when
+        var webClient = WebClient.create("http://localhost:" + port);
+        Flux.range(0, 8)
+                .flatMap(i -> webClient.delete()
+                        .uri(REVIEWS_URI + "/{id}", review.getReviewId())
+                        .exchangeToMono(response -> response.releaseBody().thenReturn(response.rawStatusCode())), 8)
+                .blockLast(Duration.ofSeconds(30));
+
+        //then
+        var stats = stats("123");
+        assertEquals(1, stats.getCount());
+        assertEquals(3.0, stats.getSum());
+        assertEquals(0L, stats.getHistogram().get("5"));
+    }
+
+    @Test
+    void rebuildMatchesIncrementalStats() {
+        //given
+        Flux.just(new Review(null, "123", "Great movie!", 5.0),
+                        new Review(null, "123", "Must watch!", 4.5),
+                        new Review(null, "123", "No rating", null),
+                        new Review(null, "789", "Other movie", 1.0))
+                .concatMap(reviewReactiveRepository::save)
+                .blockLast();
+
+        //when
+        var movies = reviewStatsService.rebuild().block();
+
+        //then
+        assertEquals(2L, movies);
+        var stats = stats("123");
+        assertEquals(2, stats.getCount());
+        assertEquals(9.5, stats.getSum());
+        assertEquals(4.5, stats.getMin());
+        assertEquals(5.0, stats.getMax());
+        assertEquals(4.75, stats.getAverage());
+        assertEquals(Map.of("4", 1L, "5", 1L), stats.getHistogram());
+    }
+
+    @Test
+    void rebuildIsOnlyTriggeredThroughTheActuatorEndpoint() {
+        //given
+        reviewReactiveRepository.save(new Review(null, "123", "Great movie!", 5.0)).block();
+
+        //when
+        webTestClient.post()
+                .uri(REVIEWS_URI + "/stats/rebuild")
+                .exchange()
+                .expectStatus()
+                .isNotFound();
+        var result = reviewStatsEndpoint.rebuild().block();
+
+        //then
+        assertEquals(Map.of("movies", 1L), result);
+        assertEquals(1, stats("123").getCount());
+    }
+
+    @Test
+    void statsOfMovieWithoutReviews() {
+        var stats = stats("unknown");
+        assertEquals(0, stats.getCount());
+        assertNull(stats.getAverage());
+    }
+
+    private Review add(Review review) {
+        return webTestClient.post()
+                .uri(REVIEWS_URI)
+                .bodyValue(review)
+                .exchange()
+                .expectStatus()
+                .isCreated()
+                .expectBody(Review.class)
+                .returnResult()
+                .getResponseBody();
+    }
+
+    private ReviewStats stats(String movieId) {
+        return webTestClient.get()
+                .uri(REVIEWS_URI + "/stats?movieId={movieId}", movieId)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(ReviewStats.class)
+                .returnResult()
+                .getResponseBody();
+    }
+}
@@ -0,0 +1,112 @@
+package com.reactivespring.stream;
+
+import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewStats;
+import com.reactivespring.repository.ReviewReactiveRepository;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.web.server.LocalServerPort;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Flux;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@TestPropertySource(properties = "reviews.stream.bufferSize=20000")
+public class ReviewStreamStressIntgTest {
+
+    public static final int REVIEWS = 10_000;
+    public static final int CONCURRENCY = 2_000;
+    public static final int MOVIES = 10;
+
+    @LocalServerPort
+    int port;
+
+    @Autowired
+    ReviewBroadcaster reviewBroadcaster;
+
+    @Autowired
+    ReviewReactiveRepository reviewReactiveRepository;
+
+    @Autowired
+    ReactiveMongoTemplate reactiveMongoTemplate;
+
+    @Autowired
+    MeterRegistry meterRegistry;
+
+    @AfterEach
+    void tearDown() {
+        reviewReactiveRepository.deleteAll().block();
+        reactiveMongoTemplate.dropCollection(ReviewStats.class).block();
+    }
+
+    @Test
+    void concurrentPostsAreAllStreamed() throws InterruptedException {
+        //given
+        var streamed = ConcurrentHashMap.<String>newKeySet();
+        var subscription = reviewBroadcaster.subscribe(null)
+                .subscribe(review -> streamed.add(review.getReviewId()));
+        // the default pool queues at most 1000 pending acquires, one connection per in-flight post instead
+        var connectionProvider = ConnectionProvider.builder("reviews-stress")
+                .maxConnections(CONCURRENCY)
+                .pendingAcquireMaxCount(-1)
+                .build();
+        var webClient = WebClient.builder()
+                .baseUrl("http://localhost:" + port)
+                .clientConnector(new ReactorClientHttpConnector(HttpClient.create(connectionProvider)))
+                .build();
+
+        //when
+        var created = Flux.range(0, REVIEWS)
+                .flatMap(i -> webClient.post()
+                        .uri("/v1/reviews")
+                        .bodyValue(new Review(null, String.valueOf(i % MOVIES), "Review " + i, (double) (i % 6)))
+                        .retrieve()
+                        .bodyToMono(Review.class), CONCURRENCY)
+                .map(Review::getReviewId)
+                .collectList()
+                .block(Duration.ofMinutes(5));
+
+        //then
+        assertEquals(REVIEWS, created.size());
+        // a review is handed to the stream before its response, but may still be queued behind another thread's drain
+        awaitSize(streamed, REVIEWS);
+        assertTrue(streamed.containsAll(created));
+        assertNull(meterRegistry.find("reviews.stream.emit.failures").counter());
+        assertEquals(0.0, meterRegistry.get("reviews.stream.dropped").counters().stream()
+                .mapToDouble(counter -> counter.count()).sum());
+        // and the per-movie stats did not lose any concurrent increment
+        var counted = reactiveMongoTemplate.findAll(ReviewStats.class)
+                .map(ReviewStats::getCount)
+                .reduce(0L, Long::sum)
+                .block();
+        assertEquals(REVIEWS, counted);
+
+        subscription.dispose();
+        connectionProvider.disposeLater().block();
+    }
+
+    private void awaitSize(Set<String> streamed, int expected) throws InterruptedException {
+        var deadline = System.nanoTime() + Duration.ofSeconds(30).toNanos();
+        while (streamed.size() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, streamed.size());
+    }
+}
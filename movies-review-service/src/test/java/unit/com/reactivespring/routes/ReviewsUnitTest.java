@@ -1,27 +1,37 @@
 package com.reactivespring.routes;
 
 import com.reactivespring.domain.Review;
+import com.reactivespring.domain.ReviewStats;
 import com.reactivespring.exceptionhandler.GlobalErrorHandler;
 import com.reactivespring.handler.ReviewHandler;
+import com.reactivespring.instrumentation.ReactiveInstrumentation;
 import com.reactivespring.repository.ReviewReactiveRepository;
 import com.reactivespring.router.ReviewRouter;
+import com.reactivespring.service.ReviewStatsService;
+import com.reactivespring.stream.ReviewBroadcaster;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
 import org.springframework.boot.test.autoconfigure.web.reactive.WebFluxTest;
 import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.http.HttpHeaders;
 import org.springframework.test.context.ContextConfiguration;
 import org.springframework.test.web.reactive.server.WebTestClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
 import java.util.List;
+import java.util.Map;
 
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.isA;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 
 @WebFluxTest
-@ContextConfiguration(classes = {ReviewRouter.class, ReviewHandler.class, GlobalErrorHandler.class})
+@ContextConfiguration(classes = {ReviewRouter.class, ReviewHandler.class, GlobalErrorHandler.class, ReactiveInstrumentation.class, ReviewBroadcaster.class})
 @AutoConfigureWebTestClient
 public class ReviewsUnitTest {
 
@@ -29,9 +39,19 @@ public class ReviewsUnitTest {
     @MockBean
     private ReviewReactiveRepository reviewReactiveRepository;
 
+    @MockBean
+    private ReviewStatsService reviewStatsService;
+
     @Autowired
     private WebTestClient webTestClient;
 
+    @BeforeEach
+    void setUp() {
+        when(reviewStatsService.reviewAdded(any())).thenReturn(Mono.empty());
+        when(reviewStatsService.reviewUpdated(any(), any())).thenReturn(Mono.empty());
+        when(reviewStatsService.reviewRemoved(any())).thenReturn(Mono.empty());
+    }
+
     @Test
     void addReview() {
         //given
@@ -87,7 +107,7 @@ public class ReviewsUnitTest {
                 new Review("3", "456", "Not bad", 3.0)
         );
 
-        when(reviewReactiveRepository.findAll())
+        when(reviewReactiveRepository.findPage(null, 100))
                 .thenReturn(Flux.fromIterable(reviewList));
 
         //when
@@ -96,21 +116,55 @@ public class ReviewsUnitTest {
                 .exchange()
                 .expectStatus()
                 .isOk()
+                .expectHeader()
+                .doesNotExist("X-Continuation-Token")
                 .expectBodyList(Review.class)
                 .hasSize(3);
     }
 
+    @Test
+    void getAllReviewsFullPageHasContinuation() {
+        //given
+        var reviewList = List.of(
+                new Review("2", "123", "Must watch!", 4.5),
+                new Review("3", "456", "Not bad", 3.0)
+        );
+
+        when(reviewReactiveRepository.findPage("1", 2))
+                .thenReturn(Flux.fromIterable(reviewList));
+
+        //when
+        webTestClient.get()
+                .uri(REVIEW_URI + "?after=1&limit=2")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectHeader()
+                .valueEquals("X-Continuation-Token", "3")
+                .expectHeader()
+                .valueEquals(HttpHeaders.LINK, "</v1/reviews?after=3&limit=2>; rel=\"next\"")
+                .expectBodyList(Review.class)
+                .hasSize(2);
+    }
+
+    @Test
+    void getAllReviewsWithInvalidLimit() {
+        //when
+        webTestClient.get()
+                .uri(REVIEW_URI + "?limit=ten")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
     @Test
     void updateReview() {
         //given
         var reviewId = "123";
         var updatedReview = new Review(reviewId, "123", "Updated comment", 4.0);
 
-        when(reviewReactiveRepository.findById(reviewId))
+        when(reviewReactiveRepository.updateCommentAndRating(reviewId, "Updated comment", 4.0))
                 .thenReturn(Mono.just(new Review(reviewId, "123", "Old comment", 3.5)));
-
-        when(reviewReactiveRepository.save(isA(Review.class)))
-                .thenReturn(Mono.just(updatedReview));
         //when
         webTestClient
                 .put()
@@ -127,19 +181,22 @@ public class ReviewsUnitTest {
                     assert savedReview.getComment().equals("Updated comment");
                     assert savedReview.getRating() == 4.0;
                 });
+        //then
+        verify(reviewStatsService).reviewUpdated(updatedReview, 3.5);
     }
 
     @Test
     void updateReviewNotFound() {
         //given
         String reviewId = "999";
-        when(reviewReactiveRepository.findById(reviewId))
+        when(reviewReactiveRepository.updateCommentAndRating(reviewId, "Updated comment", 4.0))
                 .thenReturn(Mono.empty());
 
         //when
         webTestClient
                 .put()
                 .uri(REVIEW_URI + "/{id}", reviewId)
+                .bodyValue(new Review(reviewId, "123", "Updated comment", 4.0))
                 .exchange()
                 .expectStatus()
                 .isNotFound();
@@ -150,10 +207,9 @@ public class ReviewsUnitTest {
         //given
         String reviewId = "456";
 
-        when(reviewReactiveRepository.findById(reviewId))
-                .thenReturn(Mono.just(new Review(reviewId, "123", "To be deleted", 2.0)));
-        when(reviewReactiveRepository.deleteById(reviewId))
-                .thenReturn(Mono.empty());
+        var review = new Review(reviewId, "123", "To be deleted", 2.0);
+        when(reviewReactiveRepository.removeById(reviewId))
+                .thenReturn(Mono.just(review));
 
         //when
         webTestClient
@@ -162,6 +218,24 @@ public class ReviewsUnitTest {
                 .exchange()
                 .expectStatus()
                 .isNoContent();
+        //then
+        verify(reviewStatsService).reviewRemoved(review);
+    }
+
+    @Test
+    void deleteReviewNotFound() {
+        //given
+        String reviewId = "999";
+        when(reviewReactiveRepository.removeById(reviewId))
+                .thenReturn(Mono.empty());
+
+        //when
+        webTestClient
+                .delete()
+                .uri(REVIEW_URI + "/{id}", reviewId)
+                .exchange()
+                .expectStatus()
+                .isNotFound();
     }
 
     @Test
@@ -186,4 +260,69 @@ public class ReviewsUnitTest {
                 .expectBodyList(Review.class)
                 .hasSize(2);
     }
+
+    @Test
+    void getReviewStats() {
+        //given
+        var stats = new ReviewStats("123", 2, 9.5, 4.5, 5.0, Map.of("4", 1L, "5", 1L));
+        when(reviewStatsService.getStats("123"))
+                .thenReturn(Mono.just(stats));
+
+        //when
+        webTestClient
+                .get()
+                .uri(REVIEW_URI + "/stats?movieId={movieId}", "123")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody()
+                .jsonPath("$.count").isEqualTo(2)
+                .jsonPath("$.average").isEqualTo(4.75)
+                .jsonPath("$.histogram.5").isEqualTo(1);
+    }
+
+    @Test
+    void getReviewStatsWithoutMovieId() {
+        //when
+        webTestClient
+                .get()
+                .uri(REVIEW_URI + "/stats")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
+
+    @Test
+    void getTopRatedReviewsByMovieId() {
+        //given
+        String movieId = "123";
+        var reviewList = List.of(
+                new Review("1", movieId, "Great movie!", 5.0),
+                new Review("2", movieId, "Must watch!", 4.5)
+        );
+
+        when(reviewReactiveRepository.findByMovieIdOrderByRatingDescReviewIdAsc(movieId, PageRequest.of(0, 2)))
+                .thenReturn(Flux.fromIterable(reviewList));
+
+        //when
+        webTestClient
+                .get()
+                .uri(REVIEW_URI + "?movieId={movieId}&sort=rating&limit=2", movieId)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBodyList(Review.class)
+                .isEqualTo(reviewList);
+    }
+
+    @Test
+    void getReviewsByMovieIdWithInvalidSort() {
+        //when
+        webTestClient
+                .get()
+                .uri(REVIEW_URI + "?movieId=123&sort=comment")
+                .exchange()
+                .expectStatus()
+                .isBadRequest();
+    }
 }
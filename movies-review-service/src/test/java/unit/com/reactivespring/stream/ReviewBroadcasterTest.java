@@ -0,0 +1,91 @@
+package com.reactivespring.stream;
+
+import com.reactivespring.domain.Review;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import reactor.core.Exceptions;
+import reactor.test.StepVerifier;
+
+import java.util.ArrayList;
+import java.util.Map;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class ReviewBroadcasterTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void slowSubscriberDropsOldestWithoutStallingOthers() {
+        //given
+        var broadcaster = broadcaster(2, "drop-oldest");
+        var fast = new ArrayList<Review>();
+        var fastSubscription = broadcaster.subscribe(null).subscribe(fast::add);
+
+        //then
+        StepVerifier.create(broadcaster.subscribe(null), 0)
+                .expectSubscription()
+                .then(() -> IntStream.rangeClosed(1, 5).forEach(i -> broadcaster.publish(review(i, "123"))))
+                .then(() -> {
+                    assertEquals(5, fast.size());
+                    assertEquals(2.0, meterRegistry.get("reviews.stream.buffer.depth").tag("connection", "2").gauge().value());
+                    assertEquals(3.0, meterRegistry.get("reviews.stream.dropped").tag("connection", "2").counter().count());
+                })
+                .thenRequest(10)
+                .expectNextMatches(review -> review.getReviewId().equals("4"))
+                .expectNextMatches(review -> review.getReviewId().equals("5"))
+                .thenCancel()
+                .verify();
+
+        //then
+        fastSubscription.dispose();
+        assertNull(meterRegistry.find("reviews.stream.dropped").tag("connection", "2").counter());
+        assertEquals(0.0, meterRegistry.get("reviews.stream.connections").gauge().value());
+    }
+
+    @Test
+    void slowSubscriberIsDisconnected() {
+        //given
+        var broadcaster = broadcaster(2, "disconnect");
+
+        //then
+        StepVerifier.create(broadcaster.subscribe(null), 0)
+                .expectSubscription()
+                .then(() -> IntStream.rangeClosed(1, 3).forEach(i -> broadcaster.publish(review(i, "123"))))
+                .thenRequest(10)
+                .expectNextCount(2)
+                .verifyErrorMatches(Exceptions::isOverflow);
+    }
+
+    @Test
+    void filtersByMovieId() {
+        //given
+        var broadcaster = broadcaster(16, "drop-oldest");
+
+        //then
+        StepVerifier.create(broadcaster.subscribe("123"))
+                .expectSubscription()
+                .then(() -> {
+                    broadcaster.publish(review(1, "123"));
+                    broadcaster.publish(review(2, "789"));
+                    broadcaster.publish(review(3, "123"));
+                })
+                .expectNextMatches(review -> review.getReviewId().equals("1"))
+                .expectNextMatches(review -> review.getReviewId().equals("3"))
+                .thenCancel()
+                .verify();
+    }
+
+    private ReviewBroadcaster broadcaster(int bufferSize, String overflow) {
+        var beanFactory = new StaticListableBeanFactory(Map.of("meterRegistry", meterRegistry));
+        return new ReviewBroadcaster(beanFactory.getBeanProvider(MeterRegistry.class), bufferSize, overflow);
+    }
+
+    private Review review(int id, String movieId) {
+        return new Review(String.valueOf(id), movieId, "Review " + id, 4.0);
+    }
+}
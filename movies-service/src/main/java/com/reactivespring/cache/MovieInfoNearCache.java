@@ -0,0 +1,152 @@
+package com.reactivespring.cache;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.reactivespring.client.MoviesInfoRestClient;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
+
+import javax.annotation.PreDestroy;
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process cache in front of {@link MoviesInfoRestClient#retrieveMovieInfo(String)}, kept fresh by the
+ * movies-info-service event stream: updates refresh cached ids and deletes evict them. A load that started
+ * before an event for its id does not put what it read, so a slow miss cannot overwrite a fresher entry or
+ * bring back a deleted one. Events missed while the feed is down are unknown, so every (re)connect starts
+ * from an empty cache.
+ */
+@Component
+@Slf4j
+public class MovieInfoNearCache {
+
+    private MoviesInfoRestClient moviesInfoRestClient;
+
+    private Cache<String, MovieInfo> cache;
+
+    private boolean enabled;
+
+    private Counter streamRefreshes;
+
+    private Counter streamEvictions;
+
+    // movieId -> token of the load allowed to fill it, taken away by any event for the id
+    private final Map<String, Object> pendingLoads = new ConcurrentHashMap<>();
+
+    private Disposable streamSubscription;
+
+    public MovieInfoNearCache(MoviesInfoRestClient moviesInfoRestClient,
+                              MeterRegistry meterRegistry,
+                              @Value("${restClient.movieInfoCache.enabled:true}") boolean enabled,
+                              @Value("${restClient.movieInfoCache.maximumSize:10000}") long maximumSize,
+                              @Value("${restClient.movieInfoCache.ttl:5m}") Duration ttl) {
+        this(moviesInfoRestClient, meterRegistry, enabled, maximumSize, ttl, Ticker.systemTicker());
+    }
+
+    MovieInfoNearCache(MoviesInfoRestClient moviesInfoRestClient, MeterRegistry meterRegistry, boolean enabled,
+                       long maximumSize, Duration ttl, Ticker ticker) {
+        this.moviesInfoRestClient = moviesInfoRestClient;
+        this.enabled = enabled;
+        this.cache = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(ttl)
+                .ticker(ticker)
+                .recordStats()
+                .build();
+        CaffeineCacheMetrics.monitor(meterRegistry, cache, "movieInfoNearCache");
+        this.streamRefreshes = Counter.builder("movieInfoNearCache.stream.refreshes")
+                .register(meterRegistry);
+        this.streamEvictions = Counter.builder("movieInfoNearCache.stream.evictions")
+                .register(meterRegistry);
+    }
+
+    public Mono<MovieInfo> retrieveMovieInfo(String movieId) {
+        if (!enabled) {
+            return moviesInfoRestClient.retrieveMovieInfo(movieId);
+        }
+        return Mono.defer(() -> {
+            var cached = cache.getIfPresent(movieId);
+            if (cached != null) {
+                return Mono.just(cached);
+            }
+            var load = new Object();
+            pendingLoads.put(movieId, load);
+            return moviesInfoRestClient.retrieveMovieInfo(movieId)
+                    .doOnNext(movieInfo -> cache.asMap().compute(movieId,
+                            (id, current) -> pendingLoads.remove(id, load) ? movieInfo : current))
+                    .doFinally(signal -> pendingLoads.remove(movieId, load));
+        });
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void subscribeToMovieInfoStream() {
+        if (!enabled) {
+            return;
+        }
+        // one long-lived subscription per instance, re-established whenever the feed drops
+        streamSubscription = Flux.defer(() -> {
+                    reset();
+                    return moviesInfoRestClient.retrieveMovieInfoEvents();
+                })
+                .doOnNext(this::apply)
+                .doOnError(ex -> log.warn("MovieInfo stream failed, near cache relies on ttl until reconnected : {}", ex.getMessage()))
+                .retryWhen(Retry.backoff(Long.MAX_VALUE, Duration.ofSeconds(1)).maxBackoff(Duration.ofSeconds(30)))
+                .repeatWhen(completed -> completed.delayElements(Duration.ofSeconds(1)))
+                .subscribe();
+    }
+
+    private void apply(MovieInfoEvent event) {
+        if (event.getMovieId() == null) {
+            return;
+        }
+        var deleted = event.getType() == MovieInfoEvent.Type.DELETED;
+        // compute holds the entry, so a load completing at the same time sees either the event or nothing
+        cache.asMap().compute(event.getMovieId(), (id, current) -> {
+            pendingLoads.remove(id);
+            // only ids that are already hot are refreshed, the feed must not fill the cache
+            if (current == null) {
+                return null;
+            }
+            if (deleted) {
+                streamEvictions.increment();
+                return null;
+            }
+            streamRefreshes.increment();
+            return event.getMovieInfo();
+        });
+    }
+
+    private void reset() {
+        pendingLoads.clear();
+        cache.invalidateAll();
+    }
+
+    public void evict(String movieId) {
+        cache.asMap().compute(movieId, (id, current) -> {
+            pendingLoads.remove(id);
+            return null;
+        });
+    }
+
+    @PreDestroy
+    public void close() {
+        if (streamSubscription != null) {
+            streamSubscription.dispose();
+        }
+    }
+}
@@ -1,17 +1,32 @@
 package com.reactivespring.client;
 
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
 import com.reactivespring.exception.MoviesInfoClientException;
 import com.reactivespring.exception.MoviesInfoServerException;
+import com.reactivespring.instrumentation.ReactiveInstrumentation;
+import com.reactivespring.util.RequestHedger;
 import com.reactivespring.util.RetryUtil;
+import com.reactivespring.util.SingleFlight;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
+import org.springframework.http.codec.ServerSentEvent;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.netty.http.client.HttpClientRequest;
 import reactor.util.retry.Retry;
 
 import java.time.Duration;
@@ -22,14 +37,52 @@ public class MoviesInfoRestClient {
 
     private WebClient webClient;
 
+    private Retry retrySpec;
+
+    private CircuitBreaker circuitBreaker;
+
+    private Bulkhead bulkhead;
+
+    private RequestHedger hedger;
+
+    private ReactiveInstrumentation instrumentation;
+
+    private SingleFlight<String, MovieInfo> singleFlight;
+
+    private Retry streamReconnect = RetryUtil.reconnectSpec("moviesInfo", Duration.ofSeconds(1), Duration.ofSeconds(30));
+
     @Value("${restClient.moviesInfoUrl}")
     private String moviesInfoUrl;
 
-    public MoviesInfoRestClient(WebClient webClient) {
+    public MoviesInfoRestClient(@Qualifier("moviesInfoWebClient") WebClient webClient,
+                                @Qualifier("moviesInfoRetry") Retry retrySpec,
+                                CircuitBreakerRegistry circuitBreakerRegistry,
+                                BulkheadRegistry bulkheadRegistry,
+                                @Qualifier("moviesInfoHedger") RequestHedger hedger,
+                                MeterRegistry meterRegistry,
+                                ReactiveInstrumentation instrumentation) {
         this.webClient = webClient;
+        this.retrySpec = retrySpec;
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker("moviesInfo");
+        this.bulkhead = bulkheadRegistry.bulkhead("moviesInfo");
+        this.hedger = hedger;
+        this.instrumentation = instrumentation;
+        this.singleFlight = new SingleFlight<>("moviesInfo", meterRegistry);
     }
 
     public Mono<MovieInfo> retrieveMovieInfo(String movieId) {
+        // concurrent callers for the same id share one upstream request
+        return singleFlight.mono(movieId, () -> fetchMovieInfo(movieId));
+    }
+
+    private Mono<MovieInfo> fetchMovieInfo(String movieId) {
+        // a hedge is a second attempt of the same guarded call, the retry wraps both
+        return hedger.mono(() -> attemptMovieInfo(movieId))
+                .retryWhen(retrySpec)
+                .transform(instrumentation.mono("moviesInfo.retrieve"));
+    }
+
+    private Mono<MovieInfo> attemptMovieInfo(String movieId) {
 
         var url = moviesInfoUrl.concat("/{id}");
         /*var retrySpec = RetrySpec.fixedDelay(3, Duration.ofSeconds(1))
@@ -55,8 +108,9 @@ public class MoviesInfoRestClient {
                 .bodyToMono(MovieInfo.class)
                //.retry(3)
                 //.retryWhen(Retry.fixedDelay(3, Duration.ofMillis(500)))
-                .retryWhen(RetryUtil.retrySpec())
-                .log();
+                // every attempt, retries and hedges included, passes the bulkhead and is recorded by the circuit breaker
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
 
     }
 
@@ -69,6 +123,11 @@ public class MoviesInfoRestClient {
 
         return webClient.get()
                 .uri(url)
+                .httpRequest(httpRequest -> {
+                    // the feed is long-lived and may sit idle, so the per-read response timeout is disabled
+                    HttpClientRequest reactorRequest = httpRequest.getNativeRequest();
+                    reactorRequest.responseTimeout(Duration.ZERO);
+                })
                 .retrieve()
                 .onStatus(HttpStatus::is4xxClientError, (clientResponse -> {
                     log.info("Status code : {}", clientResponse.statusCode().value());
@@ -82,8 +141,43 @@ public class MoviesInfoRestClient {
                 }))
                 .bodyToFlux(MovieInfo.class)
                 //.retry(3)
-                .retryWhen(RetryUtil.retrySpec())
-                .log();
+                // the request retry spec has a deadline and draws on the retry budget, neither fits a feed
+                .retryWhen(streamReconnect)
+                .transform(instrumentation.flux("moviesInfo.stream"));
+
+    }
+
+    /**
+     * The event-stream variant of /stream, which also carries deletes, starting with whatever movies-info-service
+     * still has buffered.
+     */
+    public Flux<MovieInfoEvent> retrieveMovieInfoEvents() {
+
+        var url = moviesInfoUrl.concat("/stream");
+
+        return webClient.get()
+                .uri(url)
+                .accept(MediaType.TEXT_EVENT_STREAM)
+                .httpRequest(httpRequest -> {
+                    // the feed is long-lived and may sit idle, so the per-read response timeout is disabled
+                    HttpClientRequest reactorRequest = httpRequest.getNativeRequest();
+                    reactorRequest.responseTimeout(Duration.ZERO);
+                })
+                .retrieve()
+                .onStatus(HttpStatus::is4xxClientError, (clientResponse -> {
+                    log.info("Status code : {}", clientResponse.statusCode().value());
+                    return clientResponse.bodyToMono(String.class)
+                            .flatMap(response -> Mono.error(new MoviesInfoClientException(response, clientResponse.statusCode().value())));
+                }))
+                .onStatus(HttpStatus::is5xxServerError, (clientResponse -> {
+                    log.info("Status code : {}", clientResponse.statusCode().value());
+                    return clientResponse.bodyToMono(String.class)
+                            .flatMap(response -> Mono.error(new MoviesInfoServerException(response)));
+                }))
+                .bodyToFlux(new ParameterizedTypeReference<ServerSentEvent<MovieInfoEvent>>() {
+                })
+                .mapNotNull(ServerSentEvent::data)
+                .transform(instrumentation.flux("moviesInfo.events"));
 
     }
 
@@ -105,8 +199,8 @@ public class MoviesInfoRestClient {
                                     .flatMap(response -> Mono.error(new MoviesInfoServerException(response)));
                     }
                 })
-                .retryWhen(RetryUtil.retrySpec())
-                .log();
+                .retryWhen(retrySpec)
+                .transform(instrumentation.mono("moviesInfo.exchange"));
 
     }
 
@@ -5,15 +5,27 @@ import com.reactivespring.exception.MoviesInfoClientException;
 import com.reactivespring.exception.MoviesInfoServerException;
 import com.reactivespring.exception.ReviewsClientException;
 import com.reactivespring.exception.ReviewsServerException;
-import com.reactivespring.util.RetryUtil;
+import com.reactivespring.instrumentation.ReactiveInstrumentation;
+import com.reactivespring.util.RequestHedger;
+import com.reactivespring.util.SingleFlight;
+import io.github.resilience4j.bulkhead.Bulkhead;
+import io.github.resilience4j.bulkhead.BulkheadRegistry;
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.circuitbreaker.CircuitBreakerRegistry;
+import io.github.resilience4j.reactor.bulkhead.operator.BulkheadOperator;
+import io.github.resilience4j.reactor.circuitbreaker.operator.CircuitBreakerOperator;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.stereotype.Component;
 import org.springframework.web.reactive.function.client.WebClient;
 import org.springframework.web.util.UriComponentsBuilder;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
+import reactor.util.retry.Retry;
 
 @Component
 @Slf4j
@@ -21,17 +33,69 @@ public class ReviewsRestClient {
 
     private WebClient webClient;
 
+    private Retry retrySpec;
+
+    private CircuitBreaker circuitBreaker;
+
+    private Bulkhead bulkhead;
+
+    private RequestHedger hedger;
+
+    private ReactiveInstrumentation instrumentation;
+
+    private SingleFlight<String, Review> singleFlight;
+
     @Value("${restClient.reviewsUrl}")
     private String moviesReviewUrl;
 
-    public ReviewsRestClient(WebClient webClient) {
+    public ReviewsRestClient(@Qualifier("reviewsWebClient") WebClient webClient,
+                             @Qualifier("reviewsRetry") Retry retrySpec,
+                             CircuitBreakerRegistry circuitBreakerRegistry,
+                             BulkheadRegistry bulkheadRegistry,
+                             @Qualifier("reviewsHedger") RequestHedger hedger,
+                             MeterRegistry meterRegistry,
+                             ReactiveInstrumentation instrumentation) {
         this.webClient = webClient;
+        this.retrySpec = retrySpec;
+        this.circuitBreaker = circuitBreakerRegistry.circuitBreaker("reviews");
+        this.bulkhead = bulkheadRegistry.bulkhead("reviews");
+        this.hedger = hedger;
+        this.instrumentation = instrumentation;
+        this.singleFlight = new SingleFlight<>("reviews", meterRegistry);
     }
 
     public Flux<Review> retrieveReviews(String movieId) {
+        // concurrent callers for the same movie id share one upstream request
+        return singleFlight.flux(movieId, () -> fetchReviews(movieId));
+    }
+
+    private Flux<Review> fetchReviews(String movieId) {
+        // a hedge is a second attempt of the same guarded call, the retry wraps both
+        return hedger.flux(() -> attemptReviews(movieId))
+                .retryWhen(retrySpec)
+                .transform(instrumentation.flux("reviews.retrieve"));
+    }
+
+    public Flux<Review> streamReviews(String movieId) {
+        // reviews are relayed element by element as they are decoded, so neither single-flight (which replays
+        // everything it has seen) nor retry/hedging (which would re-emit) apply; a long-lived stream must not
+        // hold a bulkhead permit or be recorded as a slow call either
+        return requestReviews(movieId, MediaType.APPLICATION_NDJSON)
+                .transform(instrumentation.flux("reviews.stream"));
+    }
+
+    private Flux<Review> attemptReviews(String movieId) {
+        return requestReviews(movieId, MediaType.APPLICATION_JSON)
+                // every attempt, retries and hedges included, passes the bulkhead and is recorded by the circuit breaker
+                .transformDeferred(BulkheadOperator.of(bulkhead))
+                .transformDeferred(CircuitBreakerOperator.of(circuitBreaker));
+    }
+
+    private Flux<Review> requestReviews(String movieId, MediaType mediaType) {
         String url = UriComponentsBuilder.fromHttpUrl(moviesReviewUrl).queryParam("movieInfoId", movieId).buildAndExpand().toUriString();
         return webClient.get()
                 .uri(url, movieId)
+                .accept(mediaType, MediaType.APPLICATION_JSON)
                 .retrieve()
                 .onStatus(HttpStatus::is4xxClientError,
                         clientResponse -> {
@@ -47,9 +111,7 @@ public class ReviewsRestClient {
                             log.info("Status code: {}", clientResponse.statusCode().value());
                             return clientResponse.bodyToMono(String.class).flatMap(responseMessage -> Mono.error(new ReviewsServerException("Server Exception in ReviewsService responseMessage " + responseMessage)));
                         })
-                .bodyToFlux(Review.class)
-                .retryWhen(RetryUtil.retrySpec())
-                .log();
+                .bodyToFlux(Review.class);
     }
 
 
@@ -0,0 +1,36 @@
+package com.reactivespring.config;
+
+import com.reactivespring.util.RequestHedger;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+public class HedgeConfig {
+
+    @Bean
+    @ConfigurationProperties("rest-client.movies-info.hedge")
+    public HedgeProperties moviesInfoHedgeProperties() {
+        return new HedgeProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("rest-client.reviews.hedge")
+    public HedgeProperties reviewsHedgeProperties() {
+        return new HedgeProperties();
+    }
+
+    @Bean
+    public RequestHedger moviesInfoHedger(@Qualifier("moviesInfoHedgeProperties") HedgeProperties properties,
+                                          MeterRegistry meterRegistry) {
+        return new RequestHedger("moviesInfo", properties, meterRegistry);
+    }
+
+    @Bean
+    public RequestHedger reviewsHedger(@Qualifier("reviewsHedgeProperties") HedgeProperties properties,
+                                       MeterRegistry meterRegistry) {
+        return new RequestHedger("reviews", properties, meterRegistry);
+    }
+}
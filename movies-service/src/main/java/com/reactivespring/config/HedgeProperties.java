@@ -0,0 +1,16 @@
+package com.reactivespring.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+@Data
+public class HedgeProperties {
+
+    private boolean enabled = false;
+    private Duration delay = Duration.ofMillis(50);
+    private boolean useLiveP95 = true;
+    private long minSamples = 100;
+    private double budgetRatio = 0.05;
+    private double budgetMaxTokens = 10;
+}
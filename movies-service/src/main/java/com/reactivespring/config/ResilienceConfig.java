@@ -0,0 +1,45 @@
+package com.reactivespring.config;
+
+import io.github.resilience4j.circuitbreaker.CircuitBreaker;
+import io.github.resilience4j.core.registry.EntryAddedEvent;
+import io.github.resilience4j.core.registry.EntryRemovedEvent;
+import io.github.resilience4j.core.registry.EntryReplacedEvent;
+import io.github.resilience4j.core.registry.RegistryEventConsumer;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+@Configuration
+@Slf4j
+public class ResilienceConfig {
+
+    @Bean
+    public RegistryEventConsumer<CircuitBreaker> circuitBreakerTransitionMetrics(MeterRegistry meterRegistry) {
+        return new RegistryEventConsumer<>() {
+            @Override
+            public void onEntryAddedEvent(EntryAddedEvent<CircuitBreaker> entryAddedEvent) {
+                entryAddedEvent.getAddedEntry().getEventPublisher()
+                        .onStateTransition(event -> {
+                            var transition = event.getStateTransition();
+                            log.warn("Circuit breaker {} moved from {} to {}", event.getCircuitBreakerName(), transition.getFromState(), transition.getToState());
+                            Counter.builder("restclient.circuitbreaker.transitions")
+                                    .tag("client", event.getCircuitBreakerName())
+                                    .tag("from", transition.getFromState().name())
+                                    .tag("to", transition.getToState().name())
+                                    .register(meterRegistry)
+                                    .increment();
+                        });
+            }
+
+            @Override
+            public void onEntryRemovedEvent(EntryRemovedEvent<CircuitBreaker> entryRemoveEvent) {
+            }
+
+            @Override
+            public void onEntryReplacedEvent(EntryReplacedEvent<CircuitBreaker> entryReplacedEvent) {
+            }
+        };
+    }
+}
@@ -0,0 +1,53 @@
+package com.reactivespring.config;
+
+import com.reactivespring.util.RequestBudget;
+import com.reactivespring.util.RetryUtil;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import reactor.util.retry.Retry;
+
+@Configuration
+public class RetryConfig {
+
+    @Bean
+    @ConfigurationProperties("rest-client.movies-info.retry")
+    public RetryProperties moviesInfoRetryProperties() {
+        return new RetryProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("rest-client.reviews.retry")
+    public RetryProperties reviewsRetryProperties() {
+        return new RetryProperties();
+    }
+
+    @Bean
+    public RequestBudget retryBudget(@Value("${restClient.retryBudget.ratio:0.1}") double ratio,
+                                     @Value("${restClient.retryBudget.maxTokens:10}") double maxTokens,
+                                     MeterRegistry meterRegistry) {
+        // shared by every client so a degraded backend cannot multiply the total load
+        var retryBudget = new RequestBudget(ratio, maxTokens);
+        Gauge.builder("restclient.retry.budget.tokens", retryBudget, RequestBudget::availableTokens)
+                .register(meterRegistry);
+        return retryBudget;
+    }
+
+    @Bean
+    public Retry moviesInfoRetry(@Qualifier("moviesInfoRetryProperties") RetryProperties properties,
+                                 @Qualifier("retryBudget") RequestBudget retryBudget,
+                                 MeterRegistry meterRegistry) {
+        return RetryUtil.retrySpec("moviesInfo", properties, retryBudget, meterRegistry);
+    }
+
+    @Bean
+    public Retry reviewsRetry(@Qualifier("reviewsRetryProperties") RetryProperties properties,
+                              @Qualifier("retryBudget") RequestBudget retryBudget,
+                              MeterRegistry meterRegistry) {
+        return RetryUtil.retrySpec("reviews", properties, retryBudget, meterRegistry);
+    }
+}
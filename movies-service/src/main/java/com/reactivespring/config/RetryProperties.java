@@ -0,0 +1,15 @@
+package com.reactivespring.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+@Data
+public class RetryProperties {
+
+    private long maxAttempts = 3;
+    private Duration minBackoff = Duration.ofMillis(200);
+    private Duration maxBackoff = Duration.ofSeconds(2);
+    private double jitter = 0.5;
+    private Duration maxRetryDuration = Duration.ofSeconds(3);
+}
@@ -0,0 +1,19 @@
+package com.reactivespring.config;
+
+import lombok.Data;
+
+import java.time.Duration;
+
+@Data
+public class TransportProperties {
+
+    private int maxConnections = 100;
+    private int pendingAcquireMaxCount = 500;
+    private Duration pendingAcquireTimeout = Duration.ofSeconds(2);
+    private Duration maxIdleTime = Duration.ofSeconds(30);
+    private Duration maxLifeTime = Duration.ofMinutes(5);
+    private Duration evictInBackground = Duration.ofSeconds(30);
+    private Duration connectTimeout = Duration.ofSeconds(2);
+    private Duration responseTimeout = Duration.ofSeconds(5);
+    private boolean keepAlive = true;
+}
@@ -1,15 +1,77 @@
 package com.reactivespring.config;
 
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
 import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
 
 @Configuration
 public class WebClientConfig {
 
     @Bean
-    public WebClient webClient(WebClient.Builder webClientBuilder) {
-        return webClientBuilder
+    @ConfigurationProperties("rest-client.movies-info.transport")
+    public TransportProperties moviesInfoTransportProperties() {
+        return new TransportProperties();
+    }
+
+    @Bean
+    @ConfigurationProperties("rest-client.reviews.transport")
+    public TransportProperties reviewsTransportProperties() {
+        return new TransportProperties();
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider moviesInfoConnectionProvider(@Qualifier("moviesInfoTransportProperties") TransportProperties properties) {
+        return connectionProvider("moviesInfo", properties);
+    }
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider reviewsConnectionProvider(@Qualifier("reviewsTransportProperties") TransportProperties properties) {
+        return connectionProvider("reviews", properties);
+    }
+
+    @Bean
+    public WebClient moviesInfoWebClient(WebClient.Builder webClientBuilder,
+                                         @Qualifier("moviesInfoConnectionProvider") ConnectionProvider connectionProvider,
+                                         @Qualifier("moviesInfoTransportProperties") TransportProperties properties) {
+        return webClient(webClientBuilder, connectionProvider, properties);
+    }
+
+    @Bean
+    public WebClient reviewsWebClient(WebClient.Builder webClientBuilder,
+                                      @Qualifier("reviewsConnectionProvider") ConnectionProvider connectionProvider,
+                                      @Qualifier("reviewsTransportProperties") TransportProperties properties) {
+        return webClient(webClientBuilder, connectionProvider, properties);
+    }
+
+    private ConnectionProvider connectionProvider(String name, TransportProperties properties) {
+        return ConnectionProvider.builder(name)
+                .maxConnections(properties.getMaxConnections())
+                .pendingAcquireMaxCount(properties.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(properties.getPendingAcquireTimeout())
+                .maxIdleTime(properties.getMaxIdleTime())
+                .maxLifeTime(properties.getMaxLifeTime())
+                .evictInBackground(properties.getEvictInBackground())
+                // active, idle and pending connection gauges, published through the Micrometer global registry
+                .metrics(true)
+                .build();
+    }
+
+    private WebClient webClient(WebClient.Builder webClientBuilder, ConnectionProvider connectionProvider,
+                                TransportProperties properties) {
+        var httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) properties.getConnectTimeout().toMillis())
+                .option(ChannelOption.SO_KEEPALIVE, properties.isKeepAlive())
+                .keepAlive(properties.isKeepAlive())
+                .responseTimeout(properties.getResponseTimeout());
+        // the builder is a shared prototype, clone it so each backend gets its own connector
+        return webClientBuilder.clone()
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
                 .build();
     }
 }
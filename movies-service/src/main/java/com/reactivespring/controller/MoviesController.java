@@ -1,9 +1,15 @@
 package com.reactivespring.controller;
 
+import com.reactivespring.cache.MovieInfoNearCache;
 import com.reactivespring.client.MoviesInfoRestClient;
 import com.reactivespring.client.ReviewsRestClient;
 import com.reactivespring.domain.Movie;
 import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.Review;
+import io.github.resilience4j.bulkhead.BulkheadFullException;
+import io.github.resilience4j.circuitbreaker.CallNotPermittedException;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.http.MediaType;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
@@ -14,30 +20,77 @@ import reactor.core.publisher.Mono;
 
 @RestController
 @RequestMapping("/v1/movies")
+@Slf4j
 public class MoviesController {
 
     private MoviesInfoRestClient moviesInfoRestClient;
 
     private ReviewsRestClient reviewsRestClient;
 
-    public MoviesController(MoviesInfoRestClient moviesInfoRestClient, ReviewsRestClient reviewsRestClient) {
+    private MovieInfoNearCache movieInfoNearCache;
+
+    @Value("${restClient.concurrentAggregation:true}")
+    private boolean concurrentAggregation = true;
+
+    @Value("${restClient.reviews.maxBufferedReviews:1000}")
+    private int maxBufferedReviews = 1000;
+
+    @Value("${restClient.reviews.fallbackWhenUnavailable:true}")
+    private boolean reviewsFallbackWhenUnavailable = true;
+
+    public MoviesController(MoviesInfoRestClient moviesInfoRestClient, ReviewsRestClient reviewsRestClient,
+                            MovieInfoNearCache movieInfoNearCache) {
         this.moviesInfoRestClient = moviesInfoRestClient;
         this.reviewsRestClient = reviewsRestClient;
+        this.movieInfoNearCache = movieInfoNearCache;
     }
 
     @GetMapping("/{id}")
     public Mono<Movie> retrieveMovieById(@PathVariable("id") String id) {
         // Retrieve movie info
-        Mono<MovieInfo> movieInfoMono = moviesInfoRestClient.retrieveMovieInfo(id);
+        Mono<MovieInfo> movieInfoMono = movieInfoNearCache.retrieveMovieInfo(id);
+
+        if (concurrentAggregation) {
+            // Fire both calls at once; zip cancels the in-flight review call
+            // as soon as the movie info errors (404) or completes empty
+            var reviewsMono = retrieveReviews(id)
+                    .take(maxBufferedReviews)
+                    .collectList();
+            return Mono.zip(movieInfoMono, reviewsMono, Movie::new);
+        }
 
         // Retrieve reviews and combine with movie info
         return movieInfoMono.flatMap(movieInfo -> {
-            return reviewsRestClient.retrieveReviews(id)
+            return retrieveReviews(id)
+                    .take(maxBufferedReviews)
                     .collectList()
                     .map(reviews -> new Movie(movieInfo, reviews));
         });
     }
 
+    @GetMapping(value = "/{id}/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public Flux<Object> streamMovieById(@PathVariable("id") String id) {
+        // the MovieInfo line goes out first, then every review as its own line with backpressure
+        // all the way to the reviews service; nothing is collected in memory
+        return movieInfoNearCache.retrieveMovieInfo(id)
+                .flatMapMany(movieInfo -> Flux.<Object>just(movieInfo)
+                        .concatWith(reviewsRestClient.streamReviews(id)));
+    }
+
+    private Flux<Review> retrieveReviews(String id) {
+        var reviewsFlux = reviewsRestClient.retrieveReviews(id);
+        if (!reviewsFallbackWhenUnavailable) {
+            return reviewsFlux;
+        }
+        // an open circuit or a full bulkhead degrades to a movie without reviews
+        return reviewsFlux.onErrorResume(
+                ex -> ex instanceof CallNotPermittedException || ex instanceof BulkheadFullException,
+                ex -> {
+                    log.warn("Reviews unavailable for movie id {}, returning movie without reviews : {}", id, ex.getMessage());
+                    return Flux.empty();
+                });
+    }
+
     @GetMapping(value = "/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
     public Flux<MovieInfo> retrieveMovieInfos() {
         // Retrieve movie info
@@ -0,0 +1,42 @@
+package com.reactivespring.util;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Token bucket that caps extra requests (retries, hedges) to a fraction of the regular traffic.
+ * Every regular request deposits {@code ratio} tokens, every extra request withdraws one.
+ */
+public class RequestBudget {
+
+    private static final long SCALE = 1000;
+
+    private final long depositPerRequest;
+    private final long maxTokens;
+    private final AtomicLong tokens;
+
+    public RequestBudget(double ratio, double maxTokens) {
+        this.depositPerRequest = (long) (ratio * SCALE);
+        this.maxTokens = (long) (maxTokens * SCALE);
+        this.tokens = new AtomicLong(this.maxTokens);
+    }
+
+    public void recordRequest() {
+        tokens.accumulateAndGet(depositPerRequest, (current, deposit) -> Math.min(maxTokens, current + deposit));
+    }
+
+    public boolean tryAcquire() {
+        while (true) {
+            var current = tokens.get();
+            if (current < SCALE) {
+                return false;
+            }
+            if (tokens.compareAndSet(current, current - SCALE)) {
+                return true;
+            }
+        }
+    }
+
+    public double availableTokens() {
+        return (double) tokens.get() / SCALE;
+    }
+}
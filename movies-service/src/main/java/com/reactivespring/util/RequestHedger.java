@@ -0,0 +1,141 @@
+package com.reactivespring.util;
+
+import com.reactivespring.config.HedgeProperties;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Sends a second identical request when the first one has not answered within the hedge delay.
+ * The first signal wins and the other request is cancelled, except that a hedge failing before it emitted
+ * anything is ignored: the primary is left to answer, and its error is the one reported if it fails too.
+ * A hedge can fail fast (full bulkhead, open circuit, refused connection) without saying anything about
+ * the primary. Only use it for idempotent calls.
+ */
+public class RequestHedger {
+
+    private final HedgeProperties properties;
+    private final RequestBudget hedgeBudget;
+
+    private final Timer latency;
+    private final Counter issued;
+    private final Counter won;
+    private final Counter budgetRejected;
+    private final Counter failed;
+
+    public RequestHedger(String client, HedgeProperties properties, MeterRegistry meterRegistry) {
+        this.properties = properties;
+        this.hedgeBudget = new RequestBudget(properties.getBudgetRatio(), properties.getBudgetMaxTokens());
+        this.latency = Timer.builder("restclient.hedge.latency")
+                .tag("client", client)
+                .publishPercentiles(0.95)
+                .register(meterRegistry);
+        this.issued = hedgeCounter(client, "issued", meterRegistry);
+        this.won = hedgeCounter(client, "won", meterRegistry);
+        this.budgetRejected = hedgeCounter(client, "budget_rejected", meterRegistry);
+        this.failed = hedgeCounter(client, "failed", meterRegistry);
+    }
+
+    public <T> Mono<T> mono(Supplier<Mono<T>> call) {
+        if (!properties.isEnabled()) {
+            return call.get();
+        }
+        return Mono.defer(() -> {
+            hedgeBudget.recordRequest();
+            var primary = timed(call.get());
+            var hedge = Mono.delay(hedgeDelay())
+                    .flatMap(tick -> {
+                        if (!hedgeBudget.tryAcquire()) {
+                            budgetRejected.increment();
+                            return Mono.<T>never();
+                        }
+                        issued.increment();
+                        return timed(call.get())
+                                .doOnSuccess(value -> won.increment())
+                                .onErrorResume(ex -> {
+                                    failed.increment();
+                                    return Mono.never();
+                                });
+                    });
+            return Mono.firstWithSignal(primary, hedge);
+        });
+    }
+
+    public <T> Flux<T> flux(Supplier<Flux<T>> call) {
+        if (!properties.isEnabled()) {
+            return call.get();
+        }
+        return Flux.defer(() -> {
+            hedgeBudget.recordRequest();
+            var primary = timed(call.get());
+            var hedge = Mono.delay(hedgeDelay())
+                    .flatMapMany(tick -> {
+                        if (!hedgeBudget.tryAcquire()) {
+                            budgetRejected.increment();
+                            return Flux.<T>never();
+                        }
+                        issued.increment();
+                        var emitted = new AtomicBoolean();
+                        return timed(call.get())
+                                .doOnNext(value -> emitted.set(true))
+                                .doOnComplete(won::increment)
+                                .onErrorResume(ex -> {
+                                    // once the hedge has emitted it is the winner and its errors are the caller's
+                                    if (emitted.get()) {
+                                        return Flux.error(ex);
+                                    }
+                                    failed.increment();
+                                    return Flux.never();
+                                });
+                    });
+            return Flux.firstWithSignal(primary, hedge);
+        });
+    }
+
+    Duration hedgeDelay() {
+        var delay = properties.getDelay();
+        if (!properties.isUseLiveP95() || latency.count() < properties.getMinSamples()) {
+            return delay;
+        }
+        for (ValueAtPercentile percentile : latency.takeSnapshot().percentileValues()) {
+            if (percentile.percentile() == 0.95 && !Double.isNaN(percentile.value())) {
+                var p95 = Duration.ofNanos((long) percentile.value(TimeUnit.NANOSECONDS));
+                return p95.compareTo(delay) > 0 ? p95 : delay;
+            }
+        }
+        return delay;
+    }
+
+    // failed attempts are recorded too, slow failures such as timeouts belong in the p95 the delay is based on;
+    // attempts cancelled because the other one won are not, their latency is unknown
+    private <T> Mono<T> timed(Mono<T> call) {
+        return Mono.defer(() -> {
+            var start = System.nanoTime();
+            return call.doOnSuccess(value -> latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                    .doOnError(ex -> latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    private <T> Flux<T> timed(Flux<T> call) {
+        return Flux.defer(() -> {
+            var start = System.nanoTime();
+            return call.doOnComplete(() -> latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS))
+                    .doOnError(ex -> latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS));
+        });
+    }
+
+    private static Counter hedgeCounter(String client, String outcome, MeterRegistry meterRegistry) {
+        return Counter.builder("restclient.hedges")
+                .tag("client", client)
+                .tag("outcome", outcome)
+                .register(meterRegistry);
+    }
+}
@@ -1,22 +1,94 @@
 package com.reactivespring.util;
 
+import com.reactivespring.config.RetryProperties;
+import com.reactivespring.exception.MoviesInfoClientException;
 import com.reactivespring.exception.MoviesInfoServerException;
+import com.reactivespring.exception.ReviewsClientException;
 import com.reactivespring.exception.ReviewsServerException;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.extern.slf4j.Slf4j;
-import reactor.core.Exceptions;
+import org.reactivestreams.Publisher;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 import reactor.util.retry.Retry;
 
 import java.time.Duration;
+import java.util.concurrent.ThreadLocalRandom;
 
 @Slf4j
 public class RetryUtil {
-    public static Retry retrySpec(){
-        return Retry.fixedDelay(3, Duration.ofSeconds(1))
-                .filter(ex -> {
-                    return ex instanceof MoviesInfoServerException || ex instanceof ReviewsServerException;
-                })
-                .onRetryExhaustedThrow((retryBackoffSpec, retrySignal) -> {
-                    return Exceptions.propagate(retrySignal.failure());
+
+    public static Retry retrySpec(String client, RetryProperties properties, RequestBudget retryBudget, MeterRegistry meterRegistry) {
+        var attempted = Counter.builder("restclient.retries")
+                .tag("client", client)
+                .tag("outcome", "attempted")
+                .register(meterRegistry);
+        var budgetRejected = Counter.builder("restclient.retries")
+                .tag("client", client)
+                .tag("outcome", "budget_rejected")
+                .register(meterRegistry);
+
+        return new Retry() {
+            @Override
+            public Publisher<?> generateCompanion(Flux<RetrySignal> retrySignals) {
+                // called once per subscription, i.e. once per logical request
+                retryBudget.recordRequest();
+                var deadline = System.nanoTime() + properties.getMaxRetryDuration().toNanos();
+                // the checks run cheapest first, so a token is only taken for a retry that will really happen
+                return retrySignals.concatMap(retrySignal -> {
+                    var failure = retrySignal.failure();
+                    if (!(failure instanceof MoviesInfoServerException || failure instanceof ReviewsServerException)
+                            || retrySignal.totalRetries() >= properties.getMaxAttempts()) {
+                        return Mono.error(failure);
+                    }
+                    var backoff = backoff(properties, retrySignal.totalRetries());
+                    // the retry has to start before the deadline, not just be decided before it
+                    if (System.nanoTime() + backoff.toNanos() > deadline) {
+                        return Mono.error(failure);
+                    }
+                    if (!retryBudget.tryAcquire()) {
+                        budgetRejected.increment();
+                        return Mono.error(failure);
+                    }
+                    log.info("Retrying {} call, attempt {} : {}", client, retrySignal.totalRetries() + 1, failure.getMessage());
+                    attempted.increment();
+                    return Mono.delay(backoff);
                 });
+            }
+        };
+    }
+
+    /**
+     * Reconnect policy for long-lived feeds. A feed is a single subscription for as long as it stays up, so the
+     * per-request deadline and retry budget of {@link #retrySpec} do not apply: it reconnects with capped backoff
+     * for as long as the errors are not client errors, and the backoff starts over once the feed delivered again.
+     */
+    public static Retry reconnectSpec(String client, Duration minBackoff, Duration maxBackoff) {
+        return Retry.backoff(Long.MAX_VALUE, minBackoff)
+                .maxBackoff(maxBackoff)
+                .transientErrors(true)
+                .filter(ex -> !(ex instanceof MoviesInfoClientException || ex instanceof ReviewsClientException))
+                .doBeforeRetry(retrySignal -> log.info("Reconnecting {} stream, attempt {} : {}", client,
+                        retrySignal.totalRetriesInARow() + 1, retrySignal.failure().getMessage()));
+    }
+
+    /**
+     * Exponential backoff from minBackoff, capped at maxBackoff, randomized by +/- jitter of the computed delay.
+     */
+    static Duration backoff(RetryProperties properties, long retries) {
+        var min = properties.getMinBackoff().toNanos();
+        var max = properties.getMaxBackoff().toNanos();
+        var exponential = retries >= 62 ? max : Math.min(max, min * (1L << retries));
+        if (exponential < 0) {
+            exponential = max;
+        }
+        var jitter = (long) (exponential * properties.getJitter());
+        if (jitter <= 0) {
+            return Duration.ofNanos(exponential);
+        }
+        var lowest = Math.max(min, exponential - jitter);
+        var highest = Math.min(max, exponential + jitter);
+        return Duration.ofNanos(lowest >= highest ? lowest : ThreadLocalRandom.current().nextLong(lowest, highest + 1));
     }
 }
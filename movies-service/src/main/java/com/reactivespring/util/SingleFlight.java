@@ -0,0 +1,63 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Supplier;
+
+/**
+ * Coalesces concurrent calls for the same key into a single upstream subscription.
+ * Callers arriving while a call is in flight share its elements, completion and error;
+ * the entry is dropped as soon as the upstream terminates or every caller has cancelled.
+ */
+public class SingleFlight<K, V> {
+
+    private final Map<K, Flux<V>> inFlight = new ConcurrentHashMap<>();
+
+    private final Counter issued;
+    private final Counter coalesced;
+
+    public SingleFlight(String name, MeterRegistry meterRegistry) {
+        this.issued = Counter.builder("restclient.singleflight.calls")
+                .tag("client", name)
+                .tag("outcome", "issued")
+                .register(meterRegistry);
+        this.coalesced = Counter.builder("restclient.singleflight.calls")
+                .tag("client", name)
+                .tag("outcome", "coalesced")
+                .register(meterRegistry);
+    }
+
+    public Mono<V> mono(K key, Supplier<Mono<V>> call) {
+        return flux(key, () -> call.get().flux()).next();
+    }
+
+    public Flux<V> flux(K key, Supplier<Flux<V>> call) {
+        return Flux.defer(() -> {
+            var created = new AtomicReference<Flux<V>>();
+            var shared = inFlight.computeIfAbsent(key, k -> {
+                Flux<V> flight = call.get()
+                        .doFinally(signalType -> inFlight.remove(k, created.get()))
+                        .replay()
+                        .refCount();
+                created.set(flight);
+                return flight;
+            });
+            if (shared == created.get()) {
+                issued.increment();
+            } else {
+                coalesced.increment();
+            }
+            return shared;
+        });
+    }
+
+    int inFlightCount() {
+        return inFlight.size();
+    }
+}
@@ -0,0 +1,79 @@
+package com.reactivespring.controller;
+
+import com.github.tomakehurst.wiremock.client.WireMock;
+import com.reactivespring.domain.Movie;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+
+import java.util.Objects;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient
+@AutoConfigureWireMock(port = 0)
+@TestPropertySource(
+        properties = {
+                "restClient.moviesInfoUrl=http://localhost:${wiremock.server.port}/v1/movieinfos",
+                "restClient.reviewsUrl=http://localhost:${wiremock.server.port}/v1/reviews",
+                "restClient.reviews.retry.maxAttempts=0",
+                "resilience4j.circuitbreaker.instances.reviews.slidingWindowSize=2",
+                "resilience4j.circuitbreaker.instances.reviews.minimumNumberOfCalls=2",
+                "resilience4j.circuitbreaker.instances.reviews.failureRateThreshold=50",
+                "resilience4j.circuitbreaker.instances.reviews.waitDurationInOpenState=1m"
+        }
+)
+public class MoviesControllerCircuitBreakerIntgTest {
+
+    public static final String MOVIE_INFOS_PATH = "/v1/movieinfos";
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Test
+    void openReviewsCircuitReturnsMovieWithoutReviews() {
+        //given
+        stubFor(get(urlEqualTo(MOVIE_INFOS_PATH + "/123"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withStatus(500)
+                        .withBody("Review Service is not available")));
+
+        //when
+        for (int i = 0; i < 2; i++) {
+            webTestClient.get()
+                    .uri("/v1/movies/{movieId}", "123")
+                    .exchange()
+                    .expectStatus()
+                    .is5xxServerError();
+        }
+
+        //then
+        webTestClient.get()
+                .uri("/v1/movies/{movieId}", "123")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                    var movie = movieEntityExchangeResult.getResponseBody();
+                    assert Objects.requireNonNull(movie).getReviewList().isEmpty();
+                    assertEquals("Batman Begins", movie.getMovieInfo().getName());
+                });
+
+        // the open circuit fails fast without calling the reviews service
+        WireMock.verify(2, getRequestedFor(urlPathEqualTo("/v1/reviews")));
+    }
+}
@@ -0,0 +1,135 @@
+package com.reactivespring.controller;
+
+import com.reactivespring.domain.Movie;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.reactive.AutoConfigureWebTestClient;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.cloud.contract.wiremock.AutoConfigureWireMock;
+import org.springframework.http.MediaType;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.TestPropertySource;
+import org.springframework.test.web.reactive.server.WebTestClient;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.Objects;
+
+import static com.github.tomakehurst.wiremock.client.WireMock.*;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT)
+@ActiveProfiles("test")
+@AutoConfigureWebTestClient(timeout = "10000")
+@AutoConfigureWireMock(port = 0)
+@TestPropertySource(
+        properties = {
+                "restClient.moviesInfoUrl=http://localhost:${wiremock.server.port}/v1/movieinfos",
+                "restClient.reviewsUrl=http://localhost:${wiremock.server.port}/v1/reviews",
+                "restClient.concurrentAggregation=true"
+        }
+)
+public class MoviesControllerConcurrencyIntgTest {
+
+    public static final String MOVIE_INFOS_PATH = "/v1/movieinfos";
+    public static final int MOVIE_INFO_DELAY_MS = 1000;
+    public static final int REVIEWS_DELAY_MS = 1200;
+
+    @Autowired
+    WebTestClient webTestClient;
+
+    @Test
+    void retrieveMovieByIdCallsBackendsConcurrently() {
+        //given
+        stubFor(get(urlEqualTo(MOVIE_INFOS_PATH + "/123"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")
+                        .withFixedDelay(MOVIE_INFO_DELAY_MS)));
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")
+                        .withFixedDelay(REVIEWS_DELAY_MS)));
+
+        //when
+        var start = System.nanoTime();
+        webTestClient.get()
+                .uri("/v1/movies/{movieId}", "123")
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .expectBody(Movie.class)
+                .consumeWith(movieEntityExchangeResult -> {
+                    var movie = movieEntityExchangeResult.getResponseBody();
+                    assert Objects.requireNonNull(movie).getReviewList().size() == 2;
+                    assertEquals("Batman Begins", movie.getMovieInfo().getName());
+                });
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        //then
+        // sequential aggregation would take info + reviews (2200ms), concurrent takes max(info, reviews)
+        assertTrue(elapsed.toMillis() >= REVIEWS_DELAY_MS, "elapsed " + elapsed.toMillis() + "ms");
+        assertTrue(elapsed.toMillis() < MOVIE_INFO_DELAY_MS + REVIEWS_DELAY_MS, "elapsed " + elapsed.toMillis() + "ms");
+    }
+
+    @Test
+    void retrieveMovieByIdWhichDoesNotExistCancelsReviews() {
+        //given
+        stubFor(get(urlEqualTo(MOVIE_INFOS_PATH + "/123"))
+                .willReturn(aResponse()
+                        .withStatus(404)));
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")
+                        .withFixedDelay(5000)));
+
+        //when
+        var start = System.nanoTime();
+        webTestClient.get()
+                .uri("/v1/movies/{movieId}", "123")
+                .exchange()
+                .expectStatus()
+                .isNotFound();
+        var elapsed = Duration.ofNanos(System.nanoTime() - start);
+
+        //then
+        // the 404 must not wait for the slow review call, it is cancelled instead
+        assertTrue(elapsed.toMillis() < 5000, "elapsed " + elapsed.toMillis() + "ms");
+    }
+
+    @Test
+    void streamMovieByIdEmitsMovieInfoThenReviews() {
+        //given
+        stubFor(get(urlEqualTo(MOVIE_INFOS_PATH + "/123"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("movieinfo.json")));
+
+        stubFor(get(urlPathEqualTo("/v1/reviews"))
+                .willReturn(aResponse()
+                        .withHeader("Content-Type", "application/json")
+                        .withBodyFile("reviews.json")));
+
+        //when
+        var lines = webTestClient.get()
+                .uri("/v1/movies/{movieId}/stream", "123")
+                .accept(MediaType.APPLICATION_NDJSON)
+                .exchange()
+                .expectStatus()
+                .isOk()
+                .returnResult(String.class)
+                .getResponseBody();
+
+        //then
+        StepVerifier.create(lines)
+                .assertNext(line -> assertTrue(line.contains("Batman Begins"), line))
+                .assertNext(line -> assertTrue(line.contains("Awesome Movie"), line))
+                .assertNext(line -> assertTrue(line.contains("Excellent Movie"), line))
+                .verifyComplete();
+    }
+}
@@ -0,0 +1,194 @@
+package com.reactivespring.cache;
+
+import com.reactivespring.client.MoviesInfoRestClient;
+import com.reactivespring.domain.MovieInfo;
+import com.reactivespring.domain.MovieInfoEvent;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.timeout;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class MovieInfoNearCacheTest {
+
+    MoviesInfoRestClient moviesInfoRestClient = mock(MoviesInfoRestClient.class);
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    Sinks.Many<MovieInfoEvent> events = Sinks.many().multicast().onBackpressureBuffer();
+
+    AtomicLong nanos = new AtomicLong();
+
+    MovieInfoNearCache movieInfoNearCache = nearCache(true);
+
+    MovieInfo batman = new MovieInfo("1", "Batman Begins", "Description", List.of("Christian Bale"), LocalDate.of(2005, 6, 15), 2005);
+
+    MovieInfo batmanUpdated = new MovieInfo("1", "Batman Begins (Director's Cut)", "Description", List.of("Christian Bale"), LocalDate.of(2005, 6, 15), 2005);
+
+    @BeforeEach
+    void setUp() {
+        when(moviesInfoRestClient.retrieveMovieInfoEvents()).thenReturn(events.asFlux());
+        when(moviesInfoRestClient.retrieveMovieInfo("1")).thenReturn(Mono.just(batman));
+    }
+
+    @AfterEach
+    void tearDown() {
+        movieInfoNearCache.close();
+    }
+
+    @Test
+    void missLoadsAndHitIsServedFromCache() {
+        //when
+        retrieve("1", batman);
+        retrieve("1", batman);
+
+        //then
+        verify(moviesInfoRestClient, times(1)).retrieveMovieInfo("1");
+    }
+
+    @Test
+    void updateEventRefreshesCachedIdOnly() {
+        //given
+        movieInfoNearCache.subscribeToMovieInfoStream();
+        retrieve("1", batman);
+        var darkKnight = new MovieInfo("2", "The Dark Knight", null, null, null, 2008);
+        when(moviesInfoRestClient.retrieveMovieInfo("2")).thenReturn(Mono.just(darkKnight));
+
+        //when
+        events.tryEmitNext(new MovieInfoEvent(MovieInfoEvent.Type.UPDATED, "1", batmanUpdated));
+        events.tryEmitNext(new MovieInfoEvent(MovieInfoEvent.Type.CREATED, "2", darkKnight));
+
+        //then
+        retrieve("1", batmanUpdated);
+        verify(moviesInfoRestClient, times(1)).retrieveMovieInfo("1");
+        assertEquals(1.0, meterRegistry.get("movieInfoNearCache.stream.refreshes").counter().count());
+        // the feed does not fill the cache with ids nobody asked for
+        retrieve("2", darkKnight);
+        verify(moviesInfoRestClient, times(1)).retrieveMovieInfo("2");
+    }
+
+    @Test
+    void deleteEventEvicts() {
+        //given
+        movieInfoNearCache.subscribeToMovieInfoStream();
+        retrieve("1", batman);
+
+        //when
+        events.tryEmitNext(new MovieInfoEvent(MovieInfoEvent.Type.DELETED, "1", null));
+        when(moviesInfoRestClient.retrieveMovieInfo("1")).thenReturn(Mono.empty());
+
+        //then
+        StepVerifier.create(movieInfoNearCache.retrieveMovieInfo("1"))
+                .verifyComplete();
+        verify(moviesInfoRestClient, times(2)).retrieveMovieInfo("1");
+        assertEquals(1.0, meterRegistry.get("movieInfoNearCache.stream.evictions").counter().count());
+    }
+
+    @Test
+    void loadCompletingAfterAnEventForItsIdIsNotCached() {
+        //given
+        movieInfoNearCache.subscribeToMovieInfoStream();
+        var slowLoad = Sinks.<MovieInfo>one();
+        when(moviesInfoRestClient.retrieveMovieInfo("1")).thenReturn(slowLoad.asMono(), Mono.just(batmanUpdated));
+        var pending = movieInfoNearCache.retrieveMovieInfo("1").toFuture();
+
+        //when
+        events.tryEmitNext(new MovieInfoEvent(MovieInfoEvent.Type.UPDATED, "1", batmanUpdated));
+        slowLoad.tryEmitValue(batman);
+
+        //then
+        // the caller gets what it read, but the stale copy is not kept
+        assertEquals(batman, pending.join());
+        retrieve("1", batmanUpdated);
+        verify(moviesInfoRestClient, times(2)).retrieveMovieInfo("1");
+    }
+
+    @Test
+    void loadCompletingAfterADeleteDoesNotBringTheMovieBack() {
+        //given
+        movieInfoNearCache.subscribeToMovieInfoStream();
+        var slowLoad = Sinks.<MovieInfo>one();
+        when(moviesInfoRestClient.retrieveMovieInfo("1")).thenReturn(slowLoad.asMono(), Mono.empty());
+        var pending = movieInfoNearCache.retrieveMovieInfo("1").toFuture();
+
+        //when
+        events.tryEmitNext(new MovieInfoEvent(MovieInfoEvent.Type.DELETED, "1", null));
+        slowLoad.tryEmitValue(batman);
+        pending.join();
+
+        //then
+        StepVerifier.create(movieInfoNearCache.retrieveMovieInfo("1"))
+                .verifyComplete();
+    }
+
+    @Test
+    void entriesExpireAfterTtl() {
+        //given
+        retrieve("1", batman);
+
+        //when
+        nanos.addAndGet(Duration.ofMinutes(5).plusSeconds(1).toNanos());
+
+        //then
+        retrieve("1", batman);
+        verify(moviesInfoRestClient, times(2)).retrieveMovieInfo("1");
+    }
+
+    @Test
+    void reconnectStartsFromAnEmptyCache() {
+        //given
+        movieInfoNearCache.subscribeToMovieInfoStream();
+        retrieve("1", batman);
+        var reconnected = Sinks.many().multicast().<MovieInfoEvent>onBackpressureBuffer();
+        when(moviesInfoRestClient.retrieveMovieInfoEvents()).thenReturn(reconnected.asFlux());
+
+        //when
+        // deletes sent while the feed was down are never seen
+        events.tryEmitComplete();
+
+        //then
+        verify(moviesInfoRestClient, timeout(5_000).times(2)).retrieveMovieInfoEvents();
+        retrieve("1", batman);
+        verify(moviesInfoRestClient, times(2)).retrieveMovieInfo("1");
+    }
+
+    @Test
+    void disabledCacheDelegatesEveryCall() {
+        //given
+        movieInfoNearCache = nearCache(false);
+
+        //when
+        movieInfoNearCache.subscribeToMovieInfoStream();
+        retrieve("1", batman);
+        retrieve("1", batman);
+
+        //then
+        verify(moviesInfoRestClient, times(2)).retrieveMovieInfo("1");
+        verify(moviesInfoRestClient, never()).retrieveMovieInfoEvents();
+    }
+
+    private MovieInfoNearCache nearCache(boolean enabled) {
+        return new MovieInfoNearCache(moviesInfoRestClient, meterRegistry, enabled, 100, Duration.ofMinutes(5), nanos::get);
+    }
+
+    private void retrieve(String movieId, MovieInfo expected) {
+        StepVerifier.create(movieInfoNearCache.retrieveMovieInfo(movieId))
+                .expectNext(expected)
+                .verifyComplete();
+    }
+}
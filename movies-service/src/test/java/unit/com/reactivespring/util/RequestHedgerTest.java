@@ -0,0 +1,166 @@
+package com.reactivespring.util;
+
+import com.reactivespring.config.HedgeProperties;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RequestHedgerTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    HedgeProperties hedgeProperties() {
+        var properties = new HedgeProperties();
+        properties.setEnabled(true);
+        properties.setDelay(Duration.ofMillis(20));
+        properties.setUseLiveP95(false);
+        return properties;
+    }
+
+    @Test
+    void slowPrimaryIsHedgedAndCancelled() {
+        //given
+        var hedger = new RequestHedger("moviesInfo", hedgeProperties(), meterRegistry);
+        var calls = new AtomicInteger();
+        var primaryCancelled = new AtomicBoolean();
+        var call = Mono.defer(() -> {
+            if (calls.incrementAndGet() == 1) {
+                return Mono.delay(Duration.ofSeconds(5)).map(tick -> "slow")
+                        .doOnCancel(() -> primaryCancelled.set(true));
+            }
+            return Mono.just("fast");
+        });
+
+        //when
+        //then
+        StepVerifier.create(hedger.mono(() -> call))
+                .expectNext("fast")
+                .verifyComplete();
+        assertEquals(2, calls.get());
+        assertTrue(primaryCancelled.get());
+        assertEquals(1.0, meterRegistry.get("restclient.hedges").tag("outcome", "issued").counter().count());
+        assertEquals(1.0, meterRegistry.get("restclient.hedges").tag("outcome", "won").counter().count());
+    }
+
+    @Test
+    void fastPrimaryIsNotHedged() {
+        //given
+        var hedger = new RequestHedger("moviesInfo", hedgeProperties(), meterRegistry);
+        var calls = new AtomicInteger();
+        var call = Mono.fromSupplier(() -> "call-" + calls.incrementAndGet());
+
+        //when
+        //then
+        StepVerifier.create(hedger.mono(() -> call))
+                .expectNext("call-1")
+                .verifyComplete();
+        assertEquals(1, calls.get());
+        assertEquals(0.0, meterRegistry.get("restclient.hedges").tag("outcome", "issued").counter().count());
+    }
+
+    @Test
+    void exhaustedBudgetSkipsHedge() {
+        //given
+        var properties = hedgeProperties();
+        properties.setBudgetRatio(0);
+        properties.setBudgetMaxTokens(0);
+        var hedger = new RequestHedger("moviesInfo", properties, meterRegistry);
+        var calls = new AtomicInteger();
+        var call = Mono.defer(() -> {
+            calls.incrementAndGet();
+            return Mono.delay(Duration.ofMillis(100)).map(tick -> "slow");
+        });
+
+        //when
+        //then
+        StepVerifier.create(hedger.mono(() -> call))
+                .expectNext("slow")
+                .verifyComplete();
+        assertEquals(1, calls.get());
+        assertEquals(1.0, meterRegistry.get("restclient.hedges").tag("outcome", "budget_rejected").counter().count());
+    }
+
+    @Test
+    void failingHedgeDoesNotCancelHealthyPrimary() {
+        //given
+        var hedger = new RequestHedger("moviesInfo", hedgeProperties(), meterRegistry);
+        var calls = new AtomicInteger();
+        var call = Mono.defer(() -> {
+            if (calls.incrementAndGet() == 1) {
+                return Mono.delay(Duration.ofMillis(200)).map(tick -> "slow but fine");
+            }
+            return Mono.<String>error(new IllegalStateException("bulkhead full"));
+        });
+
+        //when
+        //then
+        StepVerifier.create(hedger.mono(() -> call))
+                .expectNext("slow but fine")
+                .verifyComplete();
+        assertEquals(2, calls.get());
+        assertEquals(1.0, meterRegistry.get("restclient.hedges").tag("outcome", "failed").counter().count());
+        assertEquals(0.0, meterRegistry.get("restclient.hedges").tag("outcome", "won").counter().count());
+    }
+
+    @Test
+    void failingHedgeDoesNotCancelHealthyPrimaryFlux() {
+        //given
+        var hedger = new RequestHedger("reviews", hedgeProperties(), meterRegistry);
+        var calls = new AtomicInteger();
+        var call = Flux.defer(() -> {
+            if (calls.incrementAndGet() == 1) {
+                return Flux.just("a", "b").delaySubscription(Duration.ofMillis(200));
+            }
+            return Flux.<String>error(new IllegalStateException("connection refused"));
+        });
+
+        //when
+        //then
+        StepVerifier.create(hedger.flux(() -> call))
+                .expectNext("a", "b")
+                .verifyComplete();
+        assertEquals(2, calls.get());
+    }
+
+    @Test
+    void primaryErrorIsReportedWhenBothFail() {
+        //given
+        var hedger = new RequestHedger("moviesInfo", hedgeProperties(), meterRegistry);
+        var calls = new AtomicInteger();
+        var call = Mono.defer(() -> {
+            if (calls.incrementAndGet() == 1) {
+                return Mono.delay(Duration.ofMillis(200)).then(Mono.<String>error(new IllegalArgumentException("primary")));
+            }
+            return Mono.<String>error(new IllegalStateException("hedge"));
+        });
+
+        //when
+        //then
+        StepVerifier.create(hedger.mono(() -> call))
+                .expectErrorMessage("primary")
+                .verify();
+    }
+
+    @Test
+    void failedAttemptsAreTimed() {
+        //given
+        var hedger = new RequestHedger("moviesInfo", hedgeProperties(), meterRegistry);
+
+        //when
+        StepVerifier.create(hedger.mono(() -> Mono.<String>error(new IllegalStateException("boom"))))
+                .expectError()
+                .verify();
+
+        //then
+        assertEquals(1, meterRegistry.get("restclient.hedge.latency").timer().count());
+    }
+}
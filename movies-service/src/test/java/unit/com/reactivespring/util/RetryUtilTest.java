@@ -0,0 +1,205 @@
+package com.reactivespring.util;
+
+import com.reactivespring.config.RetryProperties;
+import com.reactivespring.exception.MoviesInfoClientException;
+import com.reactivespring.exception.MoviesInfoServerException;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class RetryUtilTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    RetryProperties retryProperties() {
+        var properties = new RetryProperties();
+        properties.setMinBackoff(Duration.ofMillis(1));
+        properties.setMaxBackoff(Duration.ofMillis(5));
+        return properties;
+    }
+
+    @Test
+    void retriesServerErrorsUpToMaxAttempts() {
+        //given
+        var subscriptions = new AtomicInteger();
+        var retry = RetryUtil.retrySpec("moviesInfo", retryProperties(), new RequestBudget(0.1, 10), meterRegistry);
+
+        //when
+        var call = Mono.defer(() -> {
+            subscriptions.incrementAndGet();
+            return Mono.error(new MoviesInfoServerException("MovieInfo Service is not available"));
+        }).retryWhen(retry);
+
+        //then
+        StepVerifier.create(call)
+                .verifyErrorMessage("MovieInfo Service is not available");
+        assertEquals(4, subscriptions.get());
+        assertEquals(3.0, meterRegistry.get("restclient.retries").tag("outcome", "attempted").counter().count());
+    }
+
+    @Test
+    void doesNotRetryClientErrors() {
+        //given
+        var subscriptions = new AtomicInteger();
+        var retry = RetryUtil.retrySpec("moviesInfo", retryProperties(), new RequestBudget(0.1, 10), meterRegistry);
+
+        //when
+        var call = Mono.defer(() -> {
+            subscriptions.incrementAndGet();
+            return Mono.error(new MoviesInfoClientException("There is no MovieInfo available for the passed in Id : 123", 404));
+        }).retryWhen(retry);
+
+        //then
+        StepVerifier.create(call)
+                .expectError(MoviesInfoClientException.class)
+                .verify();
+        assertEquals(1, subscriptions.get());
+    }
+
+    @Test
+    void exhaustedBudgetStopsRetries() {
+        //given
+        var subscriptions = new AtomicInteger();
+        var retryBudget = new RequestBudget(0.1, 1);
+        var retry = RetryUtil.retrySpec("moviesInfo", retryProperties(), retryBudget, meterRegistry);
+
+        //when
+        var call = Mono.defer(() -> {
+            subscriptions.incrementAndGet();
+            return Mono.error(new MoviesInfoServerException("MovieInfo Service is not available"));
+        }).retryWhen(retry);
+
+        //then
+        StepVerifier.create(call)
+                .verifyErrorMessage("MovieInfo Service is not available");
+        // the single token in the bucket pays for one retry only
+        assertEquals(2, subscriptions.get());
+        assertEquals(1.0, meterRegistry.get("restclient.retries").tag("outcome", "budget_rejected").counter().count());
+    }
+
+    @Test
+    void exhaustedRequestDoesNotTakeAToken() {
+        //given
+        var retryBudget = new RequestBudget(0, 10);
+        var retry = RetryUtil.retrySpec("moviesInfo", retryProperties(), retryBudget, meterRegistry);
+
+        //when
+        var call = Mono.error(new MoviesInfoServerException("MovieInfo Service is not available")).retryWhen(retry);
+
+        //then
+        StepVerifier.create(call)
+                .verifyErrorMessage("MovieInfo Service is not available");
+        // three retries, the fourth failure ends the request without withdrawing a token
+        assertEquals(7.0, retryBudget.availableTokens());
+    }
+
+    @Test
+    void retryWhoseBackoffEndsAfterTheDeadlineIsNotStarted() {
+        //given
+        var properties = retryProperties();
+        properties.setMinBackoff(Duration.ofMillis(200));
+        properties.setMaxBackoff(Duration.ofMillis(200));
+        properties.setMaxRetryDuration(Duration.ofMillis(100));
+        var subscriptions = new AtomicInteger();
+        var retryBudget = new RequestBudget(0, 10);
+        var retry = RetryUtil.retrySpec("moviesInfo", properties, retryBudget, meterRegistry);
+
+        //when
+        var call = Mono.defer(() -> {
+            subscriptions.incrementAndGet();
+            return Mono.error(new MoviesInfoServerException("MovieInfo Service is not available"));
+        }).retryWhen(retry);
+
+        //then
+        StepVerifier.create(call)
+                .verifyErrorMessage("MovieInfo Service is not available");
+        assertEquals(1, subscriptions.get());
+        assertEquals(10.0, retryBudget.availableTokens());
+    }
+
+    @Test
+    void backoffGrowsExponentiallyWithinBounds() {
+        //given
+        var properties = retryProperties();
+        properties.setMinBackoff(Duration.ofMillis(100));
+        properties.setMaxBackoff(Duration.ofMillis(1000));
+        properties.setJitter(0);
+
+        //then
+        assertEquals(Duration.ofMillis(100), RetryUtil.backoff(properties, 0));
+        assertEquals(Duration.ofMillis(400), RetryUtil.backoff(properties, 2));
+        assertEquals(Duration.ofMillis(1000), RetryUtil.backoff(properties, 10));
+        assertEquals(Duration.ofMillis(1000), RetryUtil.backoff(properties, 100));
+    }
+
+    @Test
+    void requestRetrySpecGivesUpOnAFeedFailingPastItsDeadline() {
+        //given
+        var properties = retryProperties();
+        properties.setMaxRetryDuration(Duration.ofMillis(50));
+        var subscriptions = new AtomicInteger();
+
+        //when
+        var stream = feedDroppingAfter(Duration.ofMillis(100), subscriptions)
+                .retryWhen(RetryUtil.retrySpec("moviesInfo", properties, new RequestBudget(0.1, 10), meterRegistry));
+
+        //then
+        StepVerifier.create(stream)
+                .expectNext("event 1")
+                .verifyError(MoviesInfoServerException.class);
+        assertEquals(1, subscriptions.get());
+    }
+
+    @Test
+    void reconnectSpecReconnectsAFeedFailingPastTheRequestDeadline() {
+        //given
+        var subscriptions = new AtomicInteger();
+
+        //when
+        var stream = feedDroppingAfter(Duration.ofMillis(100), subscriptions)
+                .retryWhen(RetryUtil.reconnectSpec("moviesInfo", Duration.ofMillis(1), Duration.ofMillis(5)));
+
+        //then
+        StepVerifier.create(stream)
+                .expectNext("event 1", "event 2", "event 3")
+                .verifyComplete();
+        assertEquals(3, subscriptions.get());
+    }
+
+    @Test
+    void reconnectSpecDoesNotReconnectOnClientErrors() {
+        //given
+        var subscriptions = new AtomicInteger();
+
+        //when
+        var stream = Flux.defer(() -> {
+            subscriptions.incrementAndGet();
+            return Flux.<String>error(new MoviesInfoClientException("Bad request", 400));
+        }).retryWhen(RetryUtil.reconnectSpec("moviesInfo", Duration.ofMillis(1), Duration.ofMillis(5)));
+
+        //then
+        StepVerifier.create(stream)
+                .verifyError(MoviesInfoClientException.class);
+        assertEquals(1, subscriptions.get());
+    }
+
+    // emits one event per connection and drops the first two connections after a while, the third completes
+    private Flux<String> feedDroppingAfter(Duration uptime, AtomicInteger subscriptions) {
+        return Flux.defer(() -> {
+            var connection = subscriptions.incrementAndGet();
+            var event = Flux.just("event " + connection);
+            if (connection >= 3) {
+                return event;
+            }
+            return event.concatWith(Mono.delay(uptime)
+                    .then(Mono.error(new MoviesInfoServerException("MovieInfo Service connection dropped"))));
+        });
+    }
+}
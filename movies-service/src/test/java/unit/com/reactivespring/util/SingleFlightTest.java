@@ -0,0 +1,79 @@
+package com.reactivespring.util;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+import reactor.test.StepVerifier;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class SingleFlightTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+    SingleFlight<String, String> singleFlight = new SingleFlight<>("test", meterRegistry);
+
+    @Test
+    void concurrentCallersShareOneUpstreamCall() {
+        //given
+        var subscriptions = new AtomicInteger();
+        Sinks.One<String> upstream = Sinks.one();
+        var call = Mono.defer(() -> {
+            subscriptions.incrementAndGet();
+            return upstream.asMono();
+        });
+
+        //when
+        var first = singleFlight.mono("123", () -> call);
+        var second = singleFlight.mono("123", () -> call);
+
+        //then
+        StepVerifier.create(Mono.zip(first, second))
+                .then(() -> upstream.tryEmitValue("Batman Begins"))
+                .assertNext(tuple -> {
+                    assertEquals("Batman Begins", tuple.getT1());
+                    assertEquals("Batman Begins", tuple.getT2());
+                })
+                .verifyComplete();
+
+        assertEquals(1, subscriptions.get());
+        assertEquals(1.0, meterRegistry.get("restclient.singleflight.calls").tag("outcome", "issued").counter().count());
+        assertEquals(1.0, meterRegistry.get("restclient.singleflight.calls").tag("outcome", "coalesced").counter().count());
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    void errorIsSharedAndEntryDropped() {
+        //given
+        Sinks.One<String> upstream = Sinks.one();
+
+        //when
+        var first = singleFlight.mono("123", upstream::asMono);
+        var second = singleFlight.mono("123", upstream::asMono);
+
+        //then
+        StepVerifier.create(Mono.when(first, second))
+                .then(() -> upstream.tryEmitError(new IllegalStateException("MovieInfo Service is not available")))
+                .verifyErrorMessage("MovieInfo Service is not available");
+
+        assertEquals(0, singleFlight.inFlightCount());
+    }
+
+    @Test
+    void completedCallsAreNotCached() {
+        //given
+        var subscriptions = new AtomicInteger();
+        var call = Mono.fromSupplier(() -> "call-" + subscriptions.incrementAndGet());
+
+        //when
+        //then
+        StepVerifier.create(singleFlight.mono("123", () -> call))
+                .expectNext("call-1")
+                .verifyComplete();
+        StepVerifier.create(singleFlight.mono("123", () -> call))
+                .expectNext("call-2")
+                .verifyComplete();
+    }
+}
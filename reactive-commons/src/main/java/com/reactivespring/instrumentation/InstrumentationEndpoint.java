@@ -0,0 +1,38 @@
+package com.reactivespring.instrumentation;
+
+import org.springframework.boot.actuate.endpoint.annotation.Endpoint;
+import org.springframework.boot.actuate.endpoint.annotation.ReadOperation;
+import org.springframework.boot.actuate.endpoint.annotation.WriteOperation;
+import org.springframework.lang.Nullable;
+import org.springframework.stereotype.Component;
+
+import java.util.Map;
+
+@Component
+@Endpoint(id = "instrumentation")
+public class InstrumentationEndpoint {
+
+    private ReactiveInstrumentation reactiveInstrumentation;
+
+    public InstrumentationEndpoint(ReactiveInstrumentation reactiveInstrumentation) {
+        this.reactiveInstrumentation = reactiveInstrumentation;
+    }
+
+    @ReadOperation
+    public Map<String, Object> instrumentation() {
+        return Map.of(
+                "metricsEnabled", reactiveInstrumentation.isMetricsEnabled(),
+                "logSampleRate", reactiveInstrumentation.getLogSampleRate());
+    }
+
+    @WriteOperation
+    public Map<String, Object> configure(@Nullable Boolean metricsEnabled, @Nullable Double logSampleRate) {
+        if (metricsEnabled != null) {
+            reactiveInstrumentation.setMetricsEnabled(metricsEnabled);
+        }
+        if (logSampleRate != null) {
+            reactiveInstrumentation.setLogSampleRate(logSampleRate);
+        }
+        return instrumentation();
+    }
+}
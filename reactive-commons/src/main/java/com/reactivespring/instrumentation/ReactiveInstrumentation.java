@@ -0,0 +1,186 @@
+package com.reactivespring.instrumentation;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Metrics;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.SignalType;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Replacement for {@code .log()} on hot paths: records per-stage latency, element count and errors as
+ * metrics, and logs a one-line summary for a sample of subscriptions when this logger is at DEBUG.
+ * Both can be switched at runtime through the instrumentation and loggers actuator endpoints; metrics
+ * are off unless {@code instrumentation.metricsEnabled} is set. Meters are registered once per stage
+ * and reused, so a finished subscription costs a map lookup rather than a registry lookup per meter.
+ */
+@Component
+@Slf4j
+public class ReactiveInstrumentation {
+
+    private final MeterRegistry meterRegistry;
+
+    private final Map<String, StageMeters> stageMeters = new ConcurrentHashMap<>();
+
+    private volatile boolean metricsEnabled;
+
+    private volatile double logSampleRate;
+
+    @Autowired
+    public ReactiveInstrumentation(ObjectProvider<MeterRegistry> meterRegistry,
+                                   @Value("${instrumentation.metricsEnabled:false}") boolean metricsEnabled,
+                                   @Value("${instrumentation.logSampleRate:0.01}") double logSampleRate) {
+        this(meterRegistry.getIfAvailable(() -> Metrics.globalRegistry), metricsEnabled, logSampleRate);
+    }
+
+    private ReactiveInstrumentation(MeterRegistry meterRegistry, boolean metricsEnabled, double logSampleRate) {
+        this.meterRegistry = meterRegistry;
+        this.metricsEnabled = metricsEnabled;
+        this.logSampleRate = logSampleRate;
+    }
+
+    /**
+     * For code running without a Spring context, e.g. over {@link Metrics#globalRegistry}.
+     */
+    public static ReactiveInstrumentation create(MeterRegistry meterRegistry, boolean metricsEnabled, double logSampleRate) {
+        return new ReactiveInstrumentation(meterRegistry, metricsEnabled, logSampleRate);
+    }
+
+    public <T> Function<Flux<T>, Flux<T>> flux(String stage) {
+        return source -> Flux.defer(() -> {
+            var sampled = sampled();
+            if (!metricsEnabled && !sampled) {
+                return source;
+            }
+            var probe = new StageProbe(stage, sampled);
+            return source
+                    .doOnNext(element -> probe.elements++)
+                    .doOnError(probe::error)
+                    .doFinally(probe::finish);
+        });
+    }
+
+    public <T> Function<Mono<T>, Mono<T>> mono(String stage) {
+        return source -> Mono.defer(() -> {
+            var sampled = sampled();
+            if (!metricsEnabled && !sampled) {
+                return source;
+            }
+            var probe = new StageProbe(stage, sampled);
+            return source
+                    .doOnNext(element -> probe.elements++)
+                    .doOnError(probe::error)
+                    .doFinally(probe::finish);
+        });
+    }
+
+    public boolean isMetricsEnabled() {
+        return metricsEnabled;
+    }
+
+    public void setMetricsEnabled(boolean metricsEnabled) {
+        this.metricsEnabled = metricsEnabled;
+    }
+
+    public double getLogSampleRate() {
+        return logSampleRate;
+    }
+
+    public void setLogSampleRate(double logSampleRate) {
+        this.logSampleRate = logSampleRate;
+    }
+
+    private StageMeters meters(String stage) {
+        var meters = stageMeters.get(stage);
+        return meters != null ? meters : stageMeters.computeIfAbsent(stage, StageMeters::new);
+    }
+
+    private boolean sampled() {
+        return log.isDebugEnabled() && ThreadLocalRandom.current().nextDouble() < logSampleRate;
+    }
+
+    // signals of one subscription are serialized, so plain fields are enough
+    private class StageProbe {
+        private final String stage;
+        private final boolean sampled;
+        private final long start = System.nanoTime();
+        private long elements;
+        private Throwable error;
+
+        StageProbe(String stage, boolean sampled) {
+            this.stage = stage;
+            this.sampled = sampled;
+        }
+
+        void error(Throwable error) {
+            this.error = error;
+        }
+
+        void finish(SignalType signalType) {
+            var duration = System.nanoTime() - start;
+            if (metricsEnabled) {
+                var meters = meters(stage);
+                meters.duration(signalType).record(duration, TimeUnit.NANOSECONDS);
+                meters.elements.record(elements);
+                if (error != null) {
+                    meters.errors(error.getClass()).increment();
+                }
+            }
+            if (sampled) {
+                var outcome = signalType == SignalType.ON_ERROR ? "error" : signalType == SignalType.CANCEL ? "cancel" : "complete";
+                log.debug("stage={} outcome={} elements={} duration={}ms error={}", stage, outcome, elements,
+                        TimeUnit.NANOSECONDS.toMillis(duration), error == null ? "-" : error.getMessage());
+            }
+        }
+    }
+
+    private class StageMeters {
+        private final String stage;
+        private final Timer complete;
+        private final Timer error;
+        private final Timer cancel;
+        private final DistributionSummary elements;
+        private final Map<Class<?>, Counter> errors = new ConcurrentHashMap<>();
+
+        StageMeters(String stage) {
+            this.stage = stage;
+            this.complete = timer("complete");
+            this.error = timer("error");
+            this.cancel = timer("cancel");
+            this.elements = DistributionSummary.builder("reactive.stage.elements")
+                    .tag("stage", stage)
+                    .register(meterRegistry);
+        }
+
+        Timer duration(SignalType signalType) {
+            return signalType == SignalType.ON_ERROR ? error : signalType == SignalType.CANCEL ? cancel : complete;
+        }
+
+        Counter errors(Class<?> exception) {
+            return errors.computeIfAbsent(exception, type -> Counter.builder("reactive.stage.errors")
+                    .tag("stage", stage)
+                    .tag("exception", type.getSimpleName())
+                    .register(meterRegistry));
+        }
+
+        private Timer timer(String outcome) {
+            return Timer.builder("reactive.stage.duration")
+                    .tag("stage", stage)
+                    .tag("outcome", outcome)
+                    .register(meterRegistry);
+        }
+    }
+}
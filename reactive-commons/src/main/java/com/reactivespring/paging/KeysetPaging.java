@@ -0,0 +1,55 @@
+package com.reactivespring.paging;
+
+import org.bson.types.ObjectId;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.schema.JsonSchemaObject;
+import org.springframework.http.HttpHeaders;
+import org.springframework.web.util.UriComponentsBuilder;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Keyset paging over _id, as served by {@code GET /v1/movieinfos} and {@code GET /v1/reviews}: a page is the next
+ * {@code limit} documents in _id order after the id the client sends back as {@code after}. Unlike skip/limit,
+ * reading page n costs the same as reading the first one.
+ */
+public final class KeysetPaging {
+
+    public static final String CONTINUATION_TOKEN = "X-Continuation-Token";
+
+    private KeysetPaging() {
+    }
+
+    /**
+     * Matches the documents whose _id sorts after {@code after} in MongoDB's _id order. Ids may be client supplied
+     * strings or generated ObjectIds; all strings sort before all ObjectIds, but {@code $gt} only compares values of
+     * the same BSON type, so a string token also has to let every ObjectId through.
+     */
+    public static Criteria afterId(String after) {
+        if (ObjectId.isValid(after)) {
+            return Criteria.where("_id").gt(new ObjectId(after));
+        }
+        return new Criteria().orOperator(
+                Criteria.where("_id").gt(after),
+                Criteria.where("_id").type(JsonSchemaObject.Type.OBJECT_ID));
+    }
+
+    /**
+     * The continuation token and {@code rel="next"} Link for a page read with {@code pageSize}, or no headers when
+     * the page came back short and so was the last one.
+     */
+    public static <T> HttpHeaders nextPageHeaders(String path, List<T> page, int pageSize, Function<T, String> idOf) {
+        var headers = new HttpHeaders();
+        if (page.size() < pageSize) {
+            return headers;
+        }
+        var continuationToken = idOf.apply(page.get(page.size() - 1));
+        headers.add(CONTINUATION_TOKEN, continuationToken);
+        headers.add(HttpHeaders.LINK, "<" + UriComponentsBuilder.fromPath(path)
+                .queryParam("after", continuationToken)
+                .queryParam("limit", pageSize)
+                .toUriString() + ">; rel=\"next\"");
+        return headers;
+    }
+}
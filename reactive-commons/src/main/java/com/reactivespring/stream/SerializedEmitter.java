@@ -0,0 +1,123 @@
+package com.reactivespring.stream;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.concurrent.Queues;
+
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * Multi-producer, single-consumer handoff in front of a non thread-safe consumer such as {@link Sinks.Many#tryEmitNext}.
+ * Producers enqueue on a lock-free queue; whichever producer moves the work-in-progress counter off zero drains
+ * the queue, and producers arriving meanwhile only bump the counter, leaving their value for that drainer.
+ * Nobody blocks or spins, and the consumer only ever runs on one thread at a time.
+ * <p>
+ * A drain pass is bounded to {@code maxPerPass} values. Under sustained contention a producer on an event loop
+ * would otherwise keep draining everybody else's values and never get back to its own requests; once the pass is
+ * used up, the rest of the queue is drained on the handoff scheduler instead, again in bounded passes. The cost is
+ * that a value emitted under contention may reach the consumer after {@code emit} has returned on every thread,
+ * so callers must not expect it to be visible synchronously.
+ */
+@Slf4j
+public class SerializedEmitter<T> {
+
+    private final Queue<T> queue = Queues.<T>unboundedMultiproducer().get();
+
+    private final AtomicInteger wip = new AtomicInteger();
+
+    public static final int DEFAULT_MAX_PER_PASS = 256;
+
+    private final Consumer<T> consumer;
+
+    private final int maxPerPass;
+
+    private final Scheduler handoff;
+
+    public SerializedEmitter(Consumer<T> consumer) {
+        this(consumer, DEFAULT_MAX_PER_PASS, Schedulers.parallel());
+    }
+
+    public SerializedEmitter(Consumer<T> consumer, int maxPerPass, Scheduler handoff) {
+        if (maxPerPass < 1) {
+            throw new IllegalArgumentException("maxPerPass must be positive : " + maxPerPass);
+        }
+        this.consumer = consumer;
+        this.maxPerPass = maxPerPass;
+        this.handoff = handoff;
+    }
+
+    /**
+     * Serializes {@code tryEmitNext} on the sink. Results other than OK are counted in {@code <name>.emit.failures}
+     * by result, except FAIL_ZERO_SUBSCRIBER, which only means nobody is listening.
+     */
+    public static <T> SerializedEmitter<T> of(Sinks.Many<T> sink, String name, MeterRegistry meterRegistry) {
+        Map<Sinks.EmitResult, Counter> failures = new ConcurrentHashMap<>();
+        var emitter = new SerializedEmitter<T>(value -> {
+            var result = sink.tryEmitNext(value);
+            if (result.isFailure() && result != Sinks.EmitResult.FAIL_ZERO_SUBSCRIBER) {
+                failures.computeIfAbsent(result, failure -> Counter.builder(name + ".emit.failures")
+                                .tag("result", failure.name())
+                                .register(meterRegistry))
+                        .increment();
+            }
+        });
+        Gauge.builder(name + ".emit.pending", emitter, SerializedEmitter::pending)
+                .register(meterRegistry);
+        return emitter;
+    }
+
+    public void emit(T value) {
+        queue.offer(value);
+        if (wip.getAndIncrement() == 0) {
+            drain();
+        }
+    }
+
+    // wip stays non-zero across a handoff, so no producer starts a second drainer in the meantime
+    private void drain() {
+        var missed = 1;
+        var budget = maxPerPass;
+        do {
+            T next;
+            while ((next = queue.poll()) != null) {
+                try {
+                    consumer.accept(next);
+                } catch (RuntimeException ex) {
+                    // one bad value must not leave the rest of the queue stranded
+                    log.error("Emitting {} failed : {}", next, ex.getMessage(), ex);
+                }
+                if (--budget == 0) {
+                    if (handOff()) {
+                        return;
+                    }
+                    budget = maxPerPass;
+                }
+            }
+            missed = wip.addAndGet(-missed);
+        } while (missed != 0);
+    }
+
+    private boolean handOff() {
+        try {
+            handoff.schedule(this::drain);
+            return true;
+        } catch (RejectedExecutionException ex) {
+            // scheduler disposed on shutdown: finish on this thread rather than strand the queue
+            return false;
+        }
+    }
+
+    public int pending() {
+        return queue.size();
+    }
+}
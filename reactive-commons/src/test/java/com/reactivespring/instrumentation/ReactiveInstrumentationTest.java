@@ -0,0 +1,118 @@
+package com.reactivespring.instrumentation;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.test.StepVerifier;
+
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+class ReactiveInstrumentationTest {
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    ReactiveInstrumentation instrumentation(boolean metricsEnabled) {
+        var beanFactory = new StaticListableBeanFactory(Map.of("meterRegistry", meterRegistry));
+        return new ReactiveInstrumentation(beanFactory.getBeanProvider(MeterRegistry.class),
+                metricsEnabled, 0.0);
+    }
+
+    @Test
+    void fluxRecordsDurationAndElements() {
+        //given
+        var instrumentation = instrumentation(true);
+
+        //when
+        StepVerifier.create(Flux.just("A", "B", "C").transform(instrumentation.flux("test")))
+                .expectNextCount(3)
+                .verifyComplete();
+
+        //then
+        assertEquals(1, meterRegistry.get("reactive.stage.duration").tag("stage", "test").tag("outcome", "complete").timer().count());
+        assertEquals(3.0, meterRegistry.get("reactive.stage.elements").tag("stage", "test").summary().totalAmount());
+    }
+
+    @Test
+    void monoErrorIsCounted() {
+        //given
+        var instrumentation = instrumentation(true);
+
+        //when
+        StepVerifier.create(Mono.<String>error(new IllegalStateException("boom")).transform(instrumentation.mono("test")))
+                .verifyError(IllegalStateException.class);
+
+        //then
+        assertEquals(1.0, meterRegistry.get("reactive.stage.errors").tag("exception", "IllegalStateException").counter().count());
+        assertEquals(1, meterRegistry.get("reactive.stage.duration").tag("outcome", "error").timer().count());
+    }
+
+    @Test
+    void metersAreRegisteredOncePerStage() {
+        //given
+        var instrumentation = instrumentation(true);
+        var flux = Flux.just("A", "B").transform(instrumentation.flux("test"));
+
+        //when
+        StepVerifier.create(flux).expectNextCount(2).verifyComplete();
+        var meterCount = meterRegistry.getMeters().size();
+        var timer = meterRegistry.get("reactive.stage.duration").tag("outcome", "complete").timer();
+        StepVerifier.create(flux).expectNextCount(2).verifyComplete();
+
+        //then
+        assertEquals(meterCount, meterRegistry.getMeters().size());
+        assertSame(timer, meterRegistry.get("reactive.stage.duration").tag("outcome", "complete").timer());
+        assertEquals(2, timer.count());
+    }
+
+    @Test
+    void disabledByDefaultRecordsNothing() {
+        //given
+        var instrumentation = instrumentation(false);
+
+        //when
+        StepVerifier.create(Flux.just("A").transform(instrumentation.flux("test")))
+                .expectNext("A")
+                .verifyComplete();
+
+        //then
+        assertNull(meterRegistry.find("reactive.stage.duration").timer());
+    }
+
+    @Test
+    void disabledAtRuntimeRecordsNothing() {
+        //given
+        var instrumentation = instrumentation(true);
+        var flux = Flux.just("A").transform(instrumentation.flux("test"));
+
+        //when
+        instrumentation.setMetricsEnabled(false);
+        StepVerifier.create(flux)
+                .expectNext("A")
+                .verifyComplete();
+
+        //then
+        assertNull(meterRegistry.find("reactive.stage.duration").timer());
+    }
+
+    @Test
+    void createdWithoutSpringRecordsIntoTheGivenRegistry() {
+        //given
+        var instrumentation = ReactiveInstrumentation.create(meterRegistry, true, 0.0);
+
+        //when
+        StepVerifier.create(Mono.just("A").transform(instrumentation.mono("test")))
+                .expectNext("A")
+                .verifyComplete();
+
+        //then
+        assertEquals(1, meterRegistry.get("reactive.stage.duration").tag("stage", "test").timer().count());
+        assertEquals(1.0, meterRegistry.get("reactive.stage.elements").tag("stage", "test").summary().totalAmount());
+    }
+}
@@ -0,0 +1,58 @@
+package com.reactivespring.paging;
+
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import java.util.List;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class KeysetPagingTest {
+
+    @Test
+    void objectIdTokenComparesAsObjectId() {
+        //given
+        var after = new ObjectId();
+
+        //when
+        var criteria = KeysetPaging.afterId(after.toHexString()).getCriteriaObject();
+
+        //then
+        assertEquals(new Document("_id", new Document("$gt", after)), criteria);
+    }
+
+    @Test
+    void stringTokenAlsoMatchesEveryObjectId() {
+        //when
+        var criteria = KeysetPaging.afterId("abc").getCriteriaObject();
+
+        //then
+        var or = criteria.getList("$or", Document.class);
+        assertEquals(2, or.size());
+        assertEquals(new Document("$gt", "abc"), or.get(0).get("_id"));
+        assertTrue(or.get(1).get("_id", Document.class).containsKey("$type"));
+    }
+
+    @Test
+    void fullPageLinksToTheNextOne() {
+        //when
+        var headers = KeysetPaging.nextPageHeaders("/v1/things", List.of("1", "2"), 2, Function.identity());
+
+        //then
+        assertEquals("2", headers.getFirst(KeysetPaging.CONTINUATION_TOKEN));
+        assertEquals("</v1/things?after=2&limit=2>; rel=\"next\"", headers.getFirst(HttpHeaders.LINK));
+    }
+
+    @Test
+    void shortPageIsTheLast() {
+        //when
+        var headers = KeysetPaging.nextPageHeaders("/v1/things", List.of("1"), 2, Function.identity());
+
+        //then
+        assertTrue(headers.isEmpty());
+    }
+}
@@ -0,0 +1,161 @@
+package com.reactivespring.stream;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.IntConsumer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SerializedEmitterTest {
+
+    public static final int THREADS = 16;
+    public static final int EMITS_PER_THREAD = 5_000;
+
+    SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void concurrentEmitsAreNeitherLostNorInterleaved() throws InterruptedException {
+        //given
+        Sinks.Many<Integer> sink = Sinks.many().multicast().directBestEffort();
+        var emitter = SerializedEmitter.of(sink, "test", meterRegistry);
+        List<Integer> received = Collections.synchronizedList(new ArrayList<>());
+        var inConsumer = new AtomicInteger();
+        var overlapped = new AtomicInteger();
+        sink.asFlux().subscribe(value -> {
+            if (inConsumer.incrementAndGet() != 1) {
+                overlapped.incrementAndGet();
+            }
+            received.add(value);
+            inConsumer.decrementAndGet();
+        });
+
+        //when
+        run(THREADS, thread -> {
+            for (int i = 0; i < EMITS_PER_THREAD; i++) {
+                emitter.emit(thread * EMITS_PER_THREAD + i);
+            }
+        });
+
+        //then
+        // the tail may still be draining on the handoff scheduler
+        awaitSize(received, THREADS * EMITS_PER_THREAD);
+        assertEquals(THREADS * EMITS_PER_THREAD, received.stream().distinct().count());
+        assertEquals(0, overlapped.get());
+        assertEquals(0, emitter.pending());
+        assertNull(meterRegistry.find("test.emit.failures").counter());
+    }
+
+    @Test
+    void failedEmitsAreCounted() {
+        //given
+        Sinks.Many<Integer> sink = Sinks.many().unicast().onBackpressureError();
+        var emitter = SerializedEmitter.of(sink, "test", meterRegistry);
+        sink.asFlux().subscribe();
+        sink.tryEmitComplete();
+
+        //when
+        emitter.emit(1);
+
+        //then
+        assertEquals(1.0, meterRegistry.get("test.emit.failures").tag("result", "FAIL_TERMINATED").counter().count());
+    }
+
+    @Test
+    void consumerFailureDoesNotStrandQueuedValues() {
+        //given
+        List<Integer> received = new ArrayList<>();
+        var emitter = new SerializedEmitter<Integer>(value -> {
+            if (value == 2) {
+                throw new IllegalStateException("boom");
+            }
+            received.add(value);
+        });
+
+        //when
+        emitter.emit(1);
+        emitter.emit(2);
+        emitter.emit(3);
+
+        //then
+        assertEquals(List.of(1, 3), received);
+    }
+
+    @Test
+    void drainPassIsBoundedAndTheRestIsHandedOff() {
+        //given
+        Queue<Runnable> handedOff = new ArrayDeque<>();
+        List<Integer> received = new ArrayList<>();
+        var emitter = new AtomicReference<SerializedEmitter<Integer>>();
+        emitter.set(new SerializedEmitter<>(value -> {
+            received.add(value);
+            if (value == 0) {
+                // values queued behind a running drain, as other producers would leave them
+                for (int i = 1; i <= 5; i++) {
+                    emitter.get().emit(i);
+                }
+            }
+        }, 2, Schedulers.fromExecutor(handedOff::add)));
+
+        //when
+        emitter.get().emit(0);
+
+        //then
+        assertEquals(List.of(0, 1), received);
+        assertEquals(4, emitter.get().pending());
+        assertEquals(1, handedOff.size());
+
+        //when
+        while (!handedOff.isEmpty()) {
+            handedOff.poll().run();
+        }
+
+        //then
+        assertEquals(List.of(0, 1, 2, 3, 4, 5), received);
+        assertEquals(0, emitter.get().pending());
+    }
+
+    private void awaitSize(List<Integer> received, int expected) throws InterruptedException {
+        var deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (received.size() < expected && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(expected, received.size());
+    }
+
+    private void run(int threads, IntConsumer task) throws InterruptedException {
+        var executor = Executors.newFixedThreadPool(threads);
+        var start = new CountDownLatch(1);
+        var done = new CountDownLatch(threads);
+        for (int t = 0; t < threads; t++) {
+            var thread = t;
+            executor.execute(() -> {
+                try {
+                    start.await();
+                    task.accept(thread);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    done.countDown();
+                }
+            });
+        }
+        start.countDown();
+        assertTrue(done.await(30, TimeUnit.SECONDS));
+        executor.shutdown();
+    }
+}
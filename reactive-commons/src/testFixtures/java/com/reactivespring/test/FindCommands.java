@@ -0,0 +1,55 @@
+package com.reactivespring.test;
+
+import com.mongodb.event.CommandListener;
+import com.mongodb.event.CommandStartedEvent;
+import org.bson.BsonDocument;
+import org.springframework.boot.autoconfigure.mongo.MongoClientSettingsBuilderCustomizer;
+import org.springframework.context.annotation.Bean;
+
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * Records the find commands the Mongo client sends, so a test can explain the query a repository method
+ * actually produced. Pull it into a test context with {@code @Import(FindCommands.class)}.
+ */
+public class FindCommands implements CommandListener {
+
+    // what a find command is made of, session and cluster fields are left out of the explain
+    private static final List<String> QUERY_FIELDS = List.of("find", "filter", "sort", "projection", "skip", "limit", "hint", "collation");
+
+    private final List<BsonDocument> commands = new CopyOnWriteArrayList<>();
+
+    @Bean
+    MongoClientSettingsBuilderCustomizer findCommandsListener() {
+        return settings -> settings.addCommandListener(this);
+    }
+
+    @Override
+    public void commandStarted(CommandStartedEvent event) {
+        if (!"find".equals(event.getCommandName())) {
+            return;
+        }
+        // the driver may reuse the command buffer once the event returns
+        var command = event.getCommand().clone();
+        var query = new BsonDocument();
+        QUERY_FIELDS.stream()
+                .filter(command::containsKey)
+                .forEach(field -> query.append(field, command.get(field)));
+        commands.add(query);
+    }
+
+    public BsonDocument last(String collectionName) {
+        BsonDocument last = null;
+        for (var command : commands) {
+            if (collectionName.equals(command.getString("find").getValue())) {
+                last = command;
+            }
+        }
+        return last;
+    }
+
+    public void clear() {
+        commands.clear();
+    }
+}
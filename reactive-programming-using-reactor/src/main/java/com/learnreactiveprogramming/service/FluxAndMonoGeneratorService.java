@@ -1,5 +1,7 @@
 package com.learnreactiveprogramming.service;
 
+import com.reactivespring.instrumentation.ReactiveInstrumentation;
+import io.micrometer.core.instrument.Metrics;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 
@@ -9,12 +11,18 @@ import java.util.Random;
 import java.util.function.Function;
 
 public class FluxAndMonoGeneratorService {
+
+    // no Spring context here: records into the global registry, off unless -Dinstrumentation.metricsEnabled=true
+    private static final ReactiveInstrumentation instrumentation = ReactiveInstrumentation.create(Metrics.globalRegistry,
+            Boolean.getBoolean("instrumentation.metricsEnabled"),
+            Double.parseDouble(System.getProperty("instrumentation.logSampleRate", "0.01")));
+
     public Flux<String> namesFlux() {
-        return Flux.fromIterable(List.of("alex", "ben", "chloe")).log();
+        return Flux.fromIterable(List.of("alex", "ben", "chloe")).transform(instrumentation.flux("namesFlux"));
     }
 
     public Mono<String> nameMono() {
-        return Mono.just("alex").log();
+        return Mono.just("alex").transform(instrumentation.mono("nameMono"));
     }
 
     public Mono<String> namesMono_map_filter(int strLength) {
@@ -22,7 +30,7 @@ public class FluxAndMonoGeneratorService {
                 .map(String::toUpperCase)
                 .filter(s -> s.length() > strLength)
                 .map(s -> s.length() + "-" + s)
-                .log();
+                .transform(instrumentation.mono("namesMono_map_filter"));
     }
 
     public Mono<List<String>> namesMono_flatmap_filter(int strLength) {
@@ -30,7 +38,7 @@ public class FluxAndMonoGeneratorService {
                 .map(String::toUpperCase)
                 .filter(s -> s.length() > strLength)
                 .flatMap(this::splitStringMono)
-                .log();
+                .transform(instrumentation.mono("namesMono_flatmap_filter"));
     }
 
     public Flux<String> namesMono_flatMapMany(int strLength) {
@@ -38,7 +46,7 @@ public class FluxAndMonoGeneratorService {
                 .map(String::toUpperCase)
                 .filter(s -> s.length() > strLength)
                 .flatMapMany(this::splitString)
-                .log();
+                .transform(instrumentation.flux("namesMono_flatMapMany"));
     }
 
 
@@ -52,7 +60,7 @@ public class FluxAndMonoGeneratorService {
                 .map(String::toUpperCase)
                 .filter(s-> s.length() > strLength)
                 .map(s->s.length()+"-"+s)
-                .log();
+                .transform(instrumentation.flux("namesFlux_map"));
     }
 
     public Flux<String> namesFlux_immutibility() {
@@ -66,7 +74,7 @@ public class FluxAndMonoGeneratorService {
                 .map(String::toUpperCase)
                 .filter(s-> s.length() > strLength)
                 .flatMap(this::splitString)
-                .log();
+                .transform(instrumentation.flux("namesFlux_flatmap"));
     }
 
     public Flux<String> namesFlux_map_async(int strLength) {
@@ -74,7 +82,7 @@ public class FluxAndMonoGeneratorService {
                 .map(String::toUpperCase)
                 .filter(s-> s.length() > strLength)
                 .flatMap(this::splitStringWithDelay)
-                .log();
+                .transform(instrumentation.flux("namesFlux_map_async"));
     }
 
     public Flux<String> namesFlux_map_concatasync(int strLength) {
@@ -82,7 +90,7 @@ public class FluxAndMonoGeneratorService {
                 .map(String::toUpperCase)
                 .filter(s-> s.length() > strLength)
                 .concatMap(this::splitStringWithDelay)
-                .log();
+                .transform(instrumentation.flux("namesFlux_map_concatasync"));
     }
 
     public Flux<String> splitString(String str) {
@@ -104,7 +112,7 @@ public class FluxAndMonoGeneratorService {
                 .transform(filterMapFunction)
                 .flatMap(this::splitString)
                 .defaultIfEmpty("default")
-                .log();
+                .transform(instrumentation.flux("namesFlux_transform"));
     }
 
     public Flux<String> namesFlux_transform_switchIfEmpty(int strLength) {
@@ -121,14 +129,14 @@ public class FluxAndMonoGeneratorService {
                 .transform(filterMapFunction)
                 .flatMap(this::splitString)
                 .switchIfEmpty(defaultFlux)
-                .log();
+                .transform(instrumentation.flux("namesFlux_transform_switchIfEmpty"));
     }
 
     public Flux<String> exploreConcat(){
         var abcFlux = Flux.just("A","B","C");
         var ddFlux = Flux.just("D","D","F");
         return Flux.concat(abcFlux, ddFlux)
-                .log();
+                .transform(instrumentation.flux("exploreConcat"));
 
     }
 
@@ -136,49 +144,49 @@ public class FluxAndMonoGeneratorService {
         var abcFlux = Flux.just("A","B","C");
         var ddFlux = Flux.just("D","D","F");
         return abcFlux.concatWith(ddFlux)
-                .log();
+                .transform(instrumentation.flux("exploreConcatWith"));
     }
 
     public Flux<String> exploreMonoConcatWith(){
         var aMono = Mono.just("A");
         var bMono = Mono.just("D");
         return aMono.concatWith(bMono)
-                .log();
+                .transform(instrumentation.flux("exploreMonoConcatWith"));
     }
 
     public Flux<String> exploreMerge() {
         var firstFlux = Flux.just("A", "B", "C").delayElements(Duration.ofMillis(100));
         var secondFlux = Flux.just("D", "E", "F").delayElements(Duration.ofMillis(125));
         return Flux.merge(firstFlux, secondFlux)
-                .log();
+                .transform(instrumentation.flux("exploreMerge"));
     }
 
     public Flux<String> exploreMergeWith() {
         var abcFlux = Flux.just("A", "B", "C").delayElements(Duration.ofMillis(100));
         var defFlux = Flux.just("D", "E", "F").delayElements(Duration.ofMillis(125));
         return abcFlux.mergeWith(defFlux)
-                .log();
+                .transform(instrumentation.flux("exploreMergeWith"));
     }
 
     public Flux<String> exploreMergeWithMono() {
         var aMono = Mono.just("A");
         var bMono = Flux.just("B");
         return aMono.mergeWith(bMono)
-                .log();
+                .transform(instrumentation.flux("exploreMergeWithMono"));
     }
 
     public Flux<String> exploreMergeSequential() {
         var firstFlux = Flux.just("A", "B", "C").delayElements(Duration.ofMillis(100));
         var secondFlux = Flux.just("D", "E", "F").delayElements(Duration.ofMillis(125));
         return Flux.mergeSequential(firstFlux, secondFlux)
-                .log();
+                .transform(instrumentation.flux("exploreMergeSequential"));
     }
 
     public Flux<String> exploreZip() {
         var firstFlux = Flux.just("A", "B", "C");
         var secondFlux = Flux.just("D", "E", "F");
         return Flux.zip(firstFlux, secondFlux, (first, second) -> first + second)
-                .log();
+                .transform(instrumentation.flux("exploreZip"));
     }
 
     public Flux<String> exploreZipWithMultipleFlux() {
@@ -188,21 +196,21 @@ public class FluxAndMonoGeneratorService {
         var forthFlux = Flux.just("4", "5", "6");
         return Flux.zip(firstFlux, secondFlux, thirdFlux,forthFlux)
                 .map(tuple -> tuple.getT1() + tuple.getT2() + tuple.getT3() + tuple.getT4())
-                .log();
+                .transform(instrumentation.flux("exploreZipWithMultipleFlux"));
     }
 
     public Flux<String> exploreZipWith() {
         var firstFlux = Flux.just("A", "B", "C");
         var secondFlux = Flux.just("D", "E", "F");
         return firstFlux.zipWith(secondFlux, (first, second) -> first + second)
-                .log();
+                .transform(instrumentation.flux("exploreZipWith"));
     }
 
     public Mono<String> exploreMonoZipWith(){
         var aMono = Mono.just("A");
         var bMono = Mono.just("D");
         return aMono.zipWith(bMono).map(tuple -> tuple.getT1() + tuple.getT2())
-                .log();
+                .transform(instrumentation.mono("exploreMonoZipWith"));
     }
 
 